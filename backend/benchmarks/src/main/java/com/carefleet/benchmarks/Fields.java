@@ -0,0 +1,31 @@
+package com.carefleet.benchmarks;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * Sets and reads the injected fields of the services under test, standing in for Spring.
+ */
+final class Fields {
+
+    private Fields() {}
+
+    static void set(Object target, String name, Object value) {
+        ReflectionUtils.setField(field(target, name), target, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(Object target, String name) {
+        return (T) ReflectionUtils.getField(field(target, name), target);
+    }
+
+    private static Field field(Object target, String name) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new IllegalArgumentException("No field " + name + " on " + target.getClass().getName());
+        }
+        ReflectionUtils.makeAccessible(field);
+        return field;
+    }
+}
@@ -0,0 +1,74 @@
+package com.carefleet.benchmarks;
+
+import com.carefleet.dto.AmbulanceDto;
+import com.carefleet.dto.BedDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes the list payloads of GET /ambulances and the bed endpoints with an ObjectMapper
+ * configured the way Spring Boot configures the MVC one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<AmbulanceDto> ambulances;
+    private List<BedDto> beds;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String now = Instant.now().toString();
+
+        ambulances = new ArrayList<>(size);
+        beds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            AmbulanceDto ambulance = new AmbulanceDto();
+            ambulance.setId("ambulance-" + i);
+            ambulance.setLicensePlate("CF-" + (1000 + i));
+            ambulance.setDriverId("driver-" + i);
+            ambulance.setStatus(i % 3 == 0 ? "IN_TRANSIT" : "AVAILABLE");
+            ambulance.setDestinationHospitalId(i % 3 == 0 ? "hospital-1" : null);
+            ambulance.setPatientOnBoard(i % 3 == 0);
+            AmbulanceDto.LocationDto location = new AmbulanceDto.LocationDto();
+            location.setLatitude(40.7 + i * 1e-4);
+            location.setLongitude(-74.0 - i * 1e-4);
+            location.setSpeed(42.5);
+            location.setHeading(180.0);
+            location.setTimestamp(now);
+            ambulance.setCurrentLocation(location);
+            ambulance.setCreatedAt(now);
+            ambulance.setUpdatedAt(now);
+            ambulances.add(ambulance);
+
+            beds.add(new BedDto("bed-" + i, "hospital-1", "B-" + i, "ICU", i % 2 == 0 ? "OCCUPIED" : "AVAILABLE",
+                    i % 2 == 0 ? "patient-" + i : null, "staff-" + (i % 20), now, now));
+        }
+    }
+
+    @Benchmark
+    public byte[] ambulanceList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ambulances);
+    }
+
+    @Benchmark
+    public byte[] bedList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(beds);
+    }
+}
@@ -0,0 +1,53 @@
+package com.carefleet.benchmarks;
+
+import com.carefleet.model.User;
+import com.carefleet.model.UserRole;
+import com.carefleet.security.JwtTokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    // 0 disables the verified-claims cache, so every validation parses and checks the signature
+    @Param({"0", "10000"})
+    public long claimsCacheSize;
+
+    private JwtTokenProvider tokenProvider;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        Fields.set(tokenProvider, "jwtSecret", "carefleet-benchmark-secret-key-with-enough-entropy-for-hmac");
+        Fields.set(tokenProvider, "jwtExpirationInMs", 86_400_000);
+        Fields.set(tokenProvider, "jwtRefreshExpirationInMs", 604_800_000);
+        Fields.set(tokenProvider, "claimsCacheMaxSize", claimsCacheSize);
+        Fields.set(tokenProvider, "meterRegistry", new SimpleMeterRegistry());
+        tokenProvider.init();
+
+        user = new User("driver@carefleet.com", "hash", "Dana", "Driver", UserRole.AMBULANCE_DRIVER);
+        user.setId("65a1f0c2e4b0a1b2c3d4e5f6");
+        user.setHospitalId("hospital-1");
+        user.setEmailVerified(true);
+        token = tokenProvider.generateTokenFromUser(user, 86_400_000);
+    }
+
+    @Benchmark
+    public String generateTokenFromUser() {
+        return tokenProvider.generateTokenFromUser(user, 86_400_000);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+}
@@ -0,0 +1,109 @@
+package com.carefleet.benchmarks;
+
+import com.carefleet.dto.LocationUpdateDto;
+import com.carefleet.model.AmbulanceLocation;
+import com.carefleet.service.AmbulanceBroadcastService;
+import com.carefleet.service.AmbulancePositionStore;
+import com.carefleet.service.AmbulanceService;
+import com.carefleet.service.AmbulanceSpatialIndex;
+import com.carefleet.service.LocationWriteBehindService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AmbulanceService.updateLocation with the real store, spatial index, write-behind queue and
+ * broadcast dirty set. MongoDB is replaced by a thread that drains the write-behind buffers, so
+ * the queue stays short the way it does when the flusher keeps up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationUpdateBenchmark {
+
+    @Param({"1000"})
+    public int ambulances;
+
+    private AmbulanceService ambulanceService;
+    private String[] ids;
+    private volatile boolean draining;
+    private Thread drainer;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AmbulancePositionStore positionStore = new AmbulancePositionStore(16_384);
+        AmbulanceSpatialIndex spatialIndex = new AmbulanceSpatialIndex(positionStore, 0.02, 50);
+        LocationWriteBehindService writeBehind = new LocationWriteBehindService(null, meterRegistry,
+                500, 1000, 50_000, 0);
+        AmbulanceBroadcastService broadcastService = new AmbulanceBroadcastService();
+        Fields.set(broadcastService, "positionStore", positionStore);
+        Fields.set(broadcastService, "meterRegistry", meterRegistry);
+        broadcastService.init();
+
+        ambulanceService = new AmbulanceService();
+        Fields.set(ambulanceService, "positionStore", positionStore);
+        Fields.set(ambulanceService, "spatialIndex", spatialIndex);
+        Fields.set(ambulanceService, "locationWriteBehind", writeBehind);
+        Fields.set(ambulanceService, "broadcastService", broadcastService);
+        Fields.set(ambulanceService, "meterRegistry", meterRegistry);
+        ambulanceService.init();
+
+        ids = new String[ambulances];
+        for (int i = 0; i < ambulances; i++) {
+            ids[i] = "ambulance-" + i;
+        }
+
+        BlockingQueue<AmbulanceLocation> history = Fields.get(writeBehind, "pendingHistory");
+        Map<String, AmbulanceLocation> positions = Fields.get(writeBehind, "pendingPositions");
+        draining = true;
+        drainer = new Thread(() -> {
+            List<AmbulanceLocation> batch = new ArrayList<>(500);
+            while (draining) {
+                history.drainTo(batch, 500);
+                batch.clear();
+                positions.clear();
+                LockSupport.parkNanos(100_000);
+            }
+        }, "write-behind-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        draining = false;
+        drainer.join();
+    }
+
+    @State(Scope.Thread)
+    public static class Ping {
+        final LocationUpdateDto update = new LocationUpdateDto();
+    }
+
+    @Benchmark
+    public void updateLocation(Ping ping) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ping.update.setLatitude(40.6 + random.nextDouble(0.3));
+        ping.update.setLongitude(-74.1 + random.nextDouble(0.3));
+        ping.update.setSpeed(random.nextDouble(90));
+        ping.update.setHeading(random.nextDouble(360));
+        ambulanceService.updateLocation(ids[random.nextInt(ids.length)], ping.update);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateLocationContended(Ping ping) {
+        updateLocation(ping);
+    }
+}
@@ -0,0 +1,56 @@
+package com.carefleet.benchmarks;
+
+import com.carefleet.config.SecurityConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the encoder that SecurityConfig wires into login and registration, including the
+ * hand-off to the hashing pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "Ambulance#2024";
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        // The application.yml defaults, so the strength is calibrated exactly as at startup
+        SecurityConfig securityConfig = new SecurityConfig();
+        Fields.set(securityConfig, "meterRegistry", new SimpleMeterRegistry());
+        Fields.set(securityConfig, "passwordTargetMs", 250L);
+        Fields.set(securityConfig, "passwordMinStrength", 10);
+        Fields.set(securityConfig, "passwordMaxStrength", 14);
+        Fields.set(securityConfig, "passwordThreads", 0);
+        Fields.set(securityConfig, "passwordQueueCapacity", 200);
+        passwordEncoder = securityConfig.passwordEncoder();
+        hash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ((DisposableBean) passwordEncoder).destroy();
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load generator for the tracking API. Each worker posts GPS pings for a random
+ * ambulance and occasionally asks for the nearest ambulances, so the mix resembles a fleet
+ * reporting every few seconds while dispatchers search. Concurrency is stepped up until p99
+ * exceeds the target, and every step is written to a JSON summary.
+ *
+ * Run a backend once with the default profile and once with the virtual-threads profile, then
+ * compare the two summaries:
+ *
+ *   java loadtest/GpsPingLoadTest.java --token $DRIVER_JWT --label platform --out platform.json
+ *   java loadtest/GpsPingLoadTest.java --token $DRIVER_JWT --label virtual --out virtual.json
+ *   java loadtest/GpsPingLoadTest.java --compare platform.json virtual.json
+ */
+public class GpsPingLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if (options.containsKey("compare")) {
+            compare(Path.of(options.get("compare")), Path.of(options.get("compare.2")));
+            return;
+        }
+
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080/api/v1");
+        String token = options.get("token");
+        if (token == null) {
+            System.err.println("--token <driver JWT> is required");
+            System.exit(2);
+        }
+        int ambulances = Integer.parseInt(options.getOrDefault("ambulances", "500"));
+        Duration stepDuration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("step-seconds", "20")));
+        int[] steps = Arrays.stream(options.getOrDefault("concurrency", "50,100,200,400,800,1600").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        double targetP99Ms = Double.parseDouble(options.getOrDefault("target-p99-ms", "250"));
+        double searchRatio = Double.parseDouble(options.getOrDefault("search-ratio", "0.1"));
+        String label = options.getOrDefault("label", "run");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        int maxConcurrency = 0;
+        for (int concurrency : steps) {
+            Map<String, Object> step = runStep(client, baseUrl, token, ambulances, concurrency, stepDuration, searchRatio);
+            results.add(step);
+            System.out.printf(Locale.ROOT, "%-10s concurrency=%5d  rps=%9.1f  p50=%7.1fms  p99=%7.1fms  errors=%d%n",
+                    label, concurrency, step.get("throughput"), step.get("p50Ms"), step.get("p99Ms"), step.get("errors"));
+            if ((double) step.get("p99Ms") > targetP99Ms || (long) step.get("errors") > 0) {
+                break;
+            }
+            maxConcurrency = concurrency;
+        }
+        System.out.printf("%s: highest concurrency with p99 <= %.0f ms and no errors: %d%n", label, targetP99Ms, maxConcurrency);
+
+        String out = options.get("out");
+        if (out != null) {
+            Files.writeString(Path.of(out), toJson(label, targetP99Ms, maxConcurrency, results));
+        }
+    }
+
+    private static Map<String, Object> runStep(HttpClient client, String baseUrl, String token, int ambulances,
+                                               int concurrency, Duration duration, double searchRatio)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        long[][] perWorker = new long[concurrency][];
+        Thread[] workers = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            int index = i;
+            workers[i] = new Thread(() ->
+                    perWorker[index] = work(client, baseUrl, token, ambulances, deadline, searchRatio, errors), "load-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long[] all = Arrays.stream(perWorker).flatMapToLong(Arrays::stream).sorted().toArray();
+        long count = all.length;
+
+        Map<String, Object> step = new HashMap<>();
+        step.put("concurrency", concurrency);
+        step.put("requests", count);
+        step.put("errors", errors.get());
+        step.put("throughput", count / (duration.toMillis() / 1000.0));
+        step.put("p50Ms", percentile(all, 0.50));
+        step.put("p99Ms", percentile(all, 0.99));
+        step.put("maxMs", all.length == 0 ? 0.0 : all[all.length - 1] / 1e6);
+        return step;
+    }
+
+    private static long[] work(HttpClient client, String baseUrl, String token, int ambulances, long deadline,
+                               double searchRatio, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] samples = new long[1024];
+        int size = 0;
+        while (System.nanoTime() < deadline) {
+            double latitude = 40.70 + random.nextDouble(0.2);
+            double longitude = -74.05 + random.nextDouble(0.2);
+            HttpRequest request;
+            if (random.nextDouble() < searchRatio) {
+                request = HttpRequest.newBuilder(URI.create(String.format(Locale.ROOT,
+                                "%s/ambulances/nearest?latitude=%.6f&longitude=%.6f&limit=5", baseUrl, latitude, longitude)))
+                        .header("Authorization", "Bearer " + token)
+                        .GET()
+                        .build();
+            } else {
+                String body = String.format(Locale.ROOT,
+                        "{\"latitude\":%.6f,\"longitude\":%.6f,\"speed\":%.1f,\"heading\":%.1f}",
+                        latitude, longitude, random.nextDouble(90), random.nextDouble(360));
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/ambulances/load-" + random.nextInt(ambulances) + "/location"))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(samples, size);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static String toJson(String label, double targetP99Ms, int maxConcurrency, List<Map<String, Object>> steps) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"label\":\"%s\",\"targetP99Ms\":%.1f,\"maxConcurrency\":%d,\"steps\":[",
+                label, targetP99Ms, maxConcurrency));
+        for (int i = 0; i < steps.size(); i++) {
+            Map<String, Object> step = steps.get(i);
+            json.append(String.format(Locale.ROOT,
+                    "%s{\"concurrency\":%d,\"requests\":%d,\"errors\":%d,\"throughput\":%.1f,\"p50Ms\":%.2f,\"p99Ms\":%.2f,\"maxMs\":%.2f}",
+                    i == 0 ? "" : ",", step.get("concurrency"), step.get("requests"), step.get("errors"),
+                    step.get("throughput"), step.get("p50Ms"), step.get("p99Ms"), step.get("maxMs")));
+        }
+        return json.append("]}\n").toString();
+    }
+
+    private static void compare(Path first, Path second) throws IOException {
+        Pattern stepPattern = Pattern.compile("\\{\"concurrency\":(\\d+),[^}]*\"throughput\":([\\d.]+),\"p50Ms\":[\\d.]+,\"p99Ms\":([\\d.]+)");
+        Map<Integer, String[]> rows = new TreeMap<>();
+        String[] labels = new String[2];
+        Path[] files = {first, second};
+        for (int f = 0; f < 2; f++) {
+            String json = Files.readString(files[f]);
+            Matcher label = Pattern.compile("\"label\":\"([^\"]*)\".*\"maxConcurrency\":(\\d+)").matcher(json);
+            labels[f] = label.find() ? label.group(1) + " (max " + label.group(2) + ")" : files[f].toString();
+            Matcher step = stepPattern.matcher(json);
+            while (step.find()) {
+                String[] row = rows.computeIfAbsent(Integer.parseInt(step.group(1)), k -> new String[]{"-", "-"});
+                row[f] = String.format(Locale.ROOT, "%8s rps  p99 %8s ms", step.group(2), step.group(3));
+            }
+        }
+        System.out.printf("%-12s %-34s %-34s%n", "concurrency", labels[0], labels[1]);
+        rows.forEach((concurrency, row) -> System.out.printf("%-12d %-34s %-34s%n", concurrency, row[0], row[1]));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            options.put(key, i + 1 < args.length ? args[++i] : "");
+            if (key.equals("compare") && i + 1 < args.length) {
+                options.put("compare.2", args[++i]);
+            }
+        }
+        return options;
+    }
+}
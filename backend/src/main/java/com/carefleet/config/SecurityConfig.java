@@ -2,9 +2,21 @@ package com.carefleet.config;
 
 import com.carefleet.security.JwtAuthenticationEntryPoint;
 import com.carefleet.security.JwtAuthenticationFilter;
+import com.carefleet.security.PooledPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -12,8 +24,8 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -23,11 +35,18 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
+    private static final String SETTINGS_COLLECTION = "security_settings";
+    private static final String PASSWORD_STRENGTH_SETTING = "bcrypt";
+
     @Autowired
     private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
@@ -37,9 +56,64 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Pins the BCrypt strength; 0 calibrates it once and shares the result through MongoDB
+    @Value("${auth.password.strength:0}")
+    private int passwordStrength;
+
+    // Strength is calibrated so one hash takes about this long on the first host to start
+    @Value("${auth.password.target-ms:250}")
+    private long passwordTargetMs;
+
+    @Value("${auth.password.min-strength:10}")
+    private int passwordMinStrength;
+
+    @Value("${auth.password.max-strength:14}")
+    private int passwordMaxStrength;
+
+    @Value("${auth.password.threads:0}")
+    private int passwordThreads;
+
+    @Value("${auth.password.queue-capacity:200}")
+    private int passwordQueueCapacity;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = passwordStrength > 0 ? passwordStrength : sharedPasswordStrength();
+        // Half the cores by default, leaving the rest for everything else
+        int threads = passwordThreads > 0 ? passwordThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new PooledPasswordEncoder(strength, threads, passwordQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * The strength every replica hashes with. Only the first instance to start calibrates; the
+     * others adopt its stored result, so stored hashes do not drift to whichever replica picked
+     * the highest strength. Delete the setting to calibrate again.
+     */
+    private int sharedPasswordStrength() {
+        Query query = Query.query(where("_id").is(PASSWORD_STRENGTH_SETTING));
+        try {
+            Document stored = mongoTemplate.findOne(query, Document.class, SETTINGS_COLLECTION);
+            if (stored != null) {
+                return stored.getInteger("strength");
+            }
+            int calibrated = PooledPasswordEncoder.calibrate(passwordTargetMs, passwordMinStrength, passwordMaxStrength);
+            // Two instances calibrating at once both end up with whichever result was stored first
+            Document agreed = mongoTemplate.findAndModify(query, new Update().setOnInsert("strength", calibrated),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, SETTINGS_COLLECTION);
+            return agreed != null ? agreed.getInteger("strength") : calibrated;
+        } catch (DataAccessException e) {
+            logger.warn("Could not read the shared BCrypt strength, calibrating for this instance only", e);
+            return PooledPasswordEncoder.calibrate(passwordTargetMs, passwordMinStrength, passwordMaxStrength);
+        }
     }
 
     @Bean
@@ -47,6 +121,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes weaker stored passwords at the calibrated strength on successful login
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -62,10 +138,12 @@ public class SecurityConfig {
             .exceptionHandling(exception -> exception.authenticationEntryPoint(jwtAuthenticationEntryPoint))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                // Streamed responses finish on an async dispatch, after the request was authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
-                .requestMatchers("/ws/**").permitAll()
+                .requestMatchers("/ws/**", "/ws-ingest").permitAll()
                 .anyRequest().authenticated()
             );
 
@@ -81,6 +159,7 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(Arrays.asList("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("X-Next-Cursor", "ETag", "X-Fleet-Version", "X-Fleet-Delta"));
         configuration.setAllowCredentials(true);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,38 @@
+package com.carefleet.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each message a STOMP channel's executor handles. On the outbound channel that is the
+ * encoding and write to one session, so it covers the per-subscriber cost of fan-out.
+ */
+class StompMetricsInterceptor implements ExecutorChannelInterceptor {
+
+    private final Timer timer;
+    private final ThreadLocal<long[]> startedAt = ThreadLocal.withInitial(() -> new long[1]);
+
+    StompMetricsInterceptor(String channel, MeterRegistry meterRegistry) {
+        this.timer = Timer.builder("websocket.messages")
+                .description("Time to handle one message on a STOMP channel")
+                .tag("channel", channel)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        startedAt.get()[0] = System.nanoTime();
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        timer.record(System.nanoTime() - startedAt.get()[0], TimeUnit.NANOSECONDS);
+    }
+}
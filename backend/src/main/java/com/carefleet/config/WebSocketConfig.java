@@ -1,19 +1,59 @@
 package com.carefleet.config;
 
+import com.carefleet.security.StompAuthenticationInterceptor;
+import com.carefleet.service.LocationPingCodec;
+import com.carefleet.service.RedisBrokerBridge;
+import com.carefleet.service.SessionBackpressure;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Spring Boot 3.2 switches Tomcat and the task executors over, but not the STOMP channels
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private StompAuthenticationInterceptor stompAuthenticationInterceptor;
+
+    @Autowired
+    private SessionBackpressure sessionBackpressure;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${websocket.outbound.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.outbound.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    // Present only with websocket.broker.mode=redis
+    @Autowired(required = false)
+    private RedisBrokerBridge redisBrokerBridge;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
+        if (redisBrokerBridge != null) {
+            config.configureBrokerChannel().interceptors(redisBrokerBridge);
+        }
     }
 
     @Override
@@ -21,5 +61,67 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        // Plain WebSocket for binary location ingest; SockJS only carries text frames
+        registry.addEndpoint("/ws-ingest")
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Room for a full batch of location pings plus STOMP headers in one frame
+        registration.setMessageSizeLimit(1 + LocationPingCodec.MAX_PINGS * LocationPingCodec.RECORD_SIZE + 4096);
+        // A session whose unsent messages exceed either limit is closed
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+        registration.setSendTimeLimit(sendTimeLimitMs);
+        registration.addDecoratorFactory(sessionBackpressure::decorate);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthenticationInterceptor, new StompMetricsInterceptor("inbound", meterRegistry));
+        if (virtualThreads) {
+            registration.taskExecutor(virtualThreadExecutor("stomp-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(sessionBackpressure, new StompMetricsInterceptor("outbound", meterRegistry));
+        if (virtualThreads) {
+            registration.taskExecutor(virtualThreadExecutor("stomp-outbound-"));
+        }
+    }
+
+    private static ThreadPoolTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        return new VirtualThreadChannelExecutor(new VirtualThreadTaskExecutor(threadNamePrefix));
+    }
+
+    /**
+     * Starts a new virtual thread for every message instead of pooling them. ChannelRegistration
+     * only takes a ThreadPoolTaskExecutor before Spring 6.2, so the pool is created but never
+     * given a task.
+     */
+    static final class VirtualThreadChannelExecutor extends ThreadPoolTaskExecutor {
+
+        private final VirtualThreadTaskExecutor delegate;
+
+        VirtualThreadChannelExecutor(VirtualThreadTaskExecutor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(task);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(task);
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(task);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,32 +1,103 @@
 package com.carefleet.controller;
 
 import com.carefleet.dto.AmbulanceDto;
+import com.carefleet.dto.AmbulanceStatusUpdateDto;
+import com.carefleet.dto.AmbulanceTrackDto;
 import com.carefleet.dto.LocationUpdateDto;
+import com.carefleet.dto.NearbyAmbulanceDto;
 import com.carefleet.service.AmbulanceService;
+import com.carefleet.service.LocationPingCodec;
+import com.carefleet.service.TrackHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/ambulances")
 @Tag(name = "Ambulance Management", description = "Ambulance tracking and management APIs")
 public class AmbulanceController {
 
+    public static final String FLEET_VERSION_HEADER = "X-Fleet-Version";
+    // "true" when the body holds only the ambulances changed since the requested version
+    public static final String FLEET_DELTA_HEADER = "X-Fleet-Delta";
+
     @Autowired
     private AmbulanceService ambulanceService;
 
+    @Autowired
+    private TrackHistoryService trackHistoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Value("${tracking.nearest.max-radius-km:500}")
+    private double maxNearestRadiusKm;
+
+    /**
+     * Answers pollers cheaply: a client sending back the ETag gets 304 until something changes,
+     * and one passing {@code since} gets only the ambulances changed after that version.
+     */
     @GetMapping
-    @Operation(summary = "Get all ambulances")
+    @Operation(summary = "Get all ambulances, or those changed since a fleet version")
     @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('AMBULANCE_DRIVER')")
-    public ResponseEntity<List<AmbulanceDto>> getAmbulances() {
-        List<AmbulanceDto> ambulances = ambulanceService.getAllAmbulances();
-        return ResponseEntity.ok(ambulances);
+    public ResponseEntity<?> getAmbulances(
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Read before the ambulances, so the version never claims changes the body lacks
+        String version = ambulanceService.getFleetVersion();
+        String etag = "W/\"" + version + "\"";
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(FLEET_VERSION_HEADER, version)
+                    .build();
+        }
+
+        List<AmbulanceDto> changed = since != null ? ambulanceService.getAmbulancesChangedSince(since) : null;
+        if (changed != null) {
+            return fleetResponse(version, etag, true).body(changed);
+        }
+        // Every poller at this version gets the same bytes
+        return responseCache.get("ambulances:" + version, acceptEncoding,
+                () -> fleetResponse(version, etag, false).body(ambulanceService.getAllAmbulances()));
+    }
+
+    private static ResponseEntity.BodyBuilder fleetResponse(String version, String etag, boolean delta) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                // Stored, but revalidated before every use
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(FLEET_VERSION_HEADER, version)
+                .header(FLEET_DELTA_HEADER, String.valueOf(delta));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all ambulances as newline-delimited JSON")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('AMBULANCE_DRIVER')")
+    public ResponseEntity<StreamingResponseBody> streamAmbulances() {
+        return NdjsonBody.of(objectMapper, ambulanceService.streamAmbulances());
     }
 
     @PostMapping("/{ambulanceId}/location")
@@ -37,4 +108,108 @@ public class AmbulanceController {
         ambulanceService.updateLocation(ambulanceId, locationUpdate);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    @PostMapping(value = "/{ambulanceId}/locations", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Upload a batch of buffered location pings in the compact binary format")
+    @PreAuthorize("hasRole('AMBULANCE_DRIVER')")
+    public ResponseEntity<?> uploadLocations(@PathVariable String ambulanceId, @RequestBody byte[] payload) {
+        try {
+            ByteBuffer pings = ByteBuffer.wrap(payload);
+            int received = LocationPingCodec.count(pings);
+            int accepted = ambulanceService.ingestPings(ambulanceId, pings);
+            return ResponseEntity.accepted().body(Map.of(
+                "ambulanceId", ambulanceId,
+                "accepted", accepted,
+                "rejected", received - accepted
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_PAYLOAD",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @PutMapping("/{ambulanceId}/status")
+    @Operation(summary = "Update ambulance status")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('AMBULANCE_DRIVER')")
+    public ResponseEntity<?> updateStatus(@PathVariable String ambulanceId,
+                                          @Valid @RequestBody AmbulanceStatusUpdateDto statusUpdate) {
+        try {
+            AmbulanceDto ambulance = ambulanceService.updateStatus(ambulanceId, statusUpdate);
+            return ResponseEntity.ok(ambulance);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_STATUS",
+                "message", "Unknown ambulance status: " + statusUpdate.getStatus()
+            ));
+        }
+    }
+
+    @GetMapping("/nearest")
+    @Operation(summary = "Find the ambulances closest to a location")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('AMBULANCE_DRIVER')")
+    public ResponseEntity<?> getNearestAmbulances(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "50") double radiusKm,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") Boolean patientOnBoard) {
+        if (!(radiusKm > 0 && radiusKm <= maxNearestRadiusKm)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_QUERY",
+                "message", "radiusKm must be greater than 0 and at most " + maxNearestRadiusKm
+            ));
+        }
+        List<NearbyAmbulanceDto> ambulances = ambulanceService.findNearest(
+                latitude, longitude, Math.min(limit, 100), radiusKm, status, patientOnBoard);
+        return ResponseEntity.ok(ambulances);
+    }
+
+    @GetMapping("/{ambulanceId}/track")
+    @Operation(summary = "Get the recorded track of an ambulance over a time range")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('AMBULANCE_DRIVER')")
+    public ResponseEntity<?> getTrack(@PathVariable String ambulanceId,
+                                      @RequestParam(required = false) String from,
+                                      @RequestParam(required = false) String to,
+                                      @RequestParam(required = false) String resolution) {
+        try {
+            Instant end = to != null ? parseInstant(to) : Instant.now();
+            Instant start = from != null ? parseInstant(from) : end.minus(Duration.ofHours(1));
+            AmbulanceTrackDto track = trackHistoryService.getTrack(ambulanceId, start, end,
+                    resolution != null ? TrackHistoryService.Resolution.fromLabel(resolution) : null);
+            return ResponseEntity.ok(track);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_QUERY",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Weak comparison as for If-None-Match: the validators only have to name the same version.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || (trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + value);
+        }
+    }
+}
@@ -5,12 +5,17 @@ import com.carefleet.dto.LoginRequest;
 import com.carefleet.dto.RegisterRequest;
 import com.carefleet.dto.RefreshTokenRequest;
 import com.carefleet.dto.VerifyEmailRequest;
+import com.carefleet.security.AuthRateLimiter;
 import com.carefleet.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -23,9 +28,17 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private AuthRateLimiter rateLimiter;
+
     @PostMapping("/register")
     @Operation(summary = "Register a new user")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
+    public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest registerRequest,
+                                          HttpServletRequest request) {
+        long waitMs = rateLimiter.acquire("register", request.getRemoteAddr(), registerRequest.getEmail());
+        if (waitMs > 0) {
+            return tooManyRequests(waitMs);
+        }
         try {
             String verificationToken = authService.registerUser(registerRequest);
             return ResponseEntity.ok(Map.of(
@@ -42,11 +55,22 @@ public class AuthController {
 
     @PostMapping("/login")
     @Operation(summary = "Authenticate user")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                              HttpServletRequest request) {
+        long waitMs = rateLimiter.acquireLogin(request.getRemoteAddr(), loginRequest.getEmail());
+        if (waitMs > 0) {
+            return tooManyRequests(waitMs);
+        }
         try {
             AuthResponse authResponse = authService.authenticateUser(loginRequest);
             return ResponseEntity.ok(authResponse);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "error", "LOGIN_UNAVAILABLE",
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
+            rateLimiter.loginFailed(request.getRemoteAddr(), loginRequest.getEmail());
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "LOGIN_FAILED",
                 "message", e.getMessage()
@@ -56,10 +80,21 @@ public class AuthController {
 
     @PostMapping("/verify-email")
     @Operation(summary = "Verify email with token and OTP")
-    public ResponseEntity<?> verifyEmail(@Valid @RequestBody VerifyEmailRequest verifyRequest) {
+    public ResponseEntity<?> verifyEmail(@Valid @RequestBody VerifyEmailRequest verifyRequest,
+                                         HttpServletRequest request) {
+        // The verification token stands in for the account, which is not known yet
+        long waitMs = rateLimiter.acquire("verify-email", request.getRemoteAddr(), verifyRequest.getToken());
+        if (waitMs > 0) {
+            return tooManyRequests(waitMs);
+        }
         try {
             AuthResponse authResponse = authService.verifyEmail(verifyRequest);
             return ResponseEntity.ok(authResponse);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "error", "EMAIL_VERIFICATION_UNAVAILABLE",
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "EMAIL_VERIFICATION_FAILED",
@@ -74,6 +109,12 @@ public class AuthController {
         try {
             AuthResponse authResponse = authService.refreshToken(refreshRequest.getRefreshToken());
             return ResponseEntity.ok(authResponse);
+        } catch (IllegalStateException e) {
+            // The session may still be valid; clients should retry rather than sign the user out
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "error", "TOKEN_REFRESH_UNAVAILABLE",
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "TOKEN_REFRESH_FAILED",
@@ -81,4 +122,54 @@ public class AuthController {
             ));
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/logout")
+    @Operation(summary = "Revoke the session a refresh token belongs to")
+    public ResponseEntity<?> logout(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            authService.logout(refreshRequest.getRefreshToken());
+            return ResponseEntity.ok(Map.of(
+                "message", "Logged out"
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "LOGOUT_FAILED",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @PostMapping("/users/{userId}/revoke-tokens")
+    @Operation(summary = "Revoke all tokens issued to a user")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN')")
+    public ResponseEntity<?> revokeTokens(@PathVariable String userId) {
+        try {
+            authService.revokeTokens(userId);
+            return ResponseEntity.ok(Map.of(
+                "message", "All tokens for the user have been revoked"
+            ));
+        } catch (IllegalStateException e) {
+            // Replicas may still accept the old tokens; the revocation has to be repeated
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "error", "TOKEN_REVOCATION_UNAVAILABLE",
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "TOKEN_REVOCATION_FAILED",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    private static ResponseEntity<?> tooManyRequests(long waitMs) {
+        long retryAfter = Math.max(1, (waitMs + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(Map.of(
+                    "error", "RATE_LIMIT_EXCEEDED",
+                    "message", "Too many requests. Please try again later.",
+                    "retryAfter", retryAfter
+                ));
+    }
+}
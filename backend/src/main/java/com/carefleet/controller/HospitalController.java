@@ -1,46 +1,307 @@
 package com.carefleet.controller;
 
+import com.carefleet.dto.BedAvailabilityDto;
 import com.carefleet.dto.BedDto;
+import com.carefleet.dto.BedRequest;
+import com.carefleet.dto.BedReservationRequest;
 import com.carefleet.dto.StaffDto;
 import com.carefleet.dto.AssignmentDto;
-import com.carefleet.service.HospitalService;
+import com.carefleet.dto.AssignmentRequest;
+import com.carefleet.dto.AssignmentStatusUpdateDto;
+import com.carefleet.model.User;
+import com.carefleet.service.AssignmentService;
+import com.carefleet.service.BedService;
+import com.carefleet.service.CursorPage;
+import com.carefleet.service.FieldProjection;
+import com.carefleet.service.StaffService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/hospitals")
 @Tag(name = "Hospital Management", description = "Hospital resource management APIs")
 public class HospitalController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private BedService bedService;
+
+    @Autowired
+    private StaffService staffService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
-    private HospitalService hospitalService;
+    private ResponseCache responseCache;
 
     @GetMapping("/{hospitalId}/beds")
-    @Operation(summary = "Get all beds for a hospital")
+    @Operation(summary = "Get the beds of a hospital, one page at a time")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<?> getBeds(@PathVariable String hospitalId,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(defaultValue = "100") int limit,
+                                     @RequestParam(required = false) String fields,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        try {
+            Set<String> selected = BedService.FIELDS.parse(fields);
+            int size = pageSize(limit);
+            // Versioned before the read, so a write racing with it leaves the entry behind
+            String key = pageKey("beds", hospitalId, bedService.getVersion(hospitalId), cursor, size, selected);
+            return responseCache.get(key, acceptEncoding, () -> pageResponse(
+                    bedService.getBeds(hospitalId, cursor, size, selected), selected, BedService.FIELDS));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_QUERY",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping(value = "/{hospitalId}/beds", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all beds of a hospital as newline-delimited JSON")
     @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('DOCTOR') or hasRole('NURSE')")
-    public ResponseEntity<List<BedDto>> getBeds(@PathVariable String hospitalId) {
-        List<BedDto> beds = hospitalService.getBeds(hospitalId);
-        return ResponseEntity.ok(beds);
+    public ResponseEntity<StreamingResponseBody> streamBeds(@PathVariable String hospitalId,
+                                                            @RequestParam(required = false) String fields) {
+        return streamBeds(List.of(hospitalId), fields);
+    }
+
+    @GetMapping(value = "/beds", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream the beds of several hospitals, or of all of them, as newline-delimited JSON")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamRegionBeds(@RequestParam(required = false) List<String> hospitalIds,
+                                                                  @RequestParam(required = false) String fields) {
+        return streamBeds(hospitalIds, fields);
+    }
+
+    @PostMapping("/{hospitalId}/beds")
+    @Operation(summary = "Create a bed")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN')")
+    public ResponseEntity<?> createBed(@PathVariable String hospitalId, @RequestBody BedRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(bedService.createBed(hospitalId, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_BED",
+                "message", e.getMessage()
+            ));
+        } catch (DuplicateKeyException e) {
+            return bedExists();
+        }
+    }
+
+    @PutMapping("/{hospitalId}/beds/{bedId}")
+    @Operation(summary = "Update a bed")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<?> updateBed(@PathVariable String hospitalId, @PathVariable String bedId,
+                                       @RequestBody BedRequest request) {
+        try {
+            return ResponseEntity.ok(bedService.updateBed(hospitalId, bedId, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_BED",
+                "message", e.getMessage()
+            ));
+        } catch (BedService.BedNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "error", "BED_NOT_FOUND",
+                "message", e.getMessage()
+            ));
+        } catch (DuplicateKeyException e) {
+            // Renamed to a number another bed in the hospital already has
+            return bedExists();
+        }
+    }
+
+    // The unique index message names collections and keys, so it is not passed on
+    private static ResponseEntity<?> bedExists() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+            "error", "BED_EXISTS",
+            "message", "Bed number is already in use"
+        ));
+    }
+
+    @GetMapping("/{hospitalId}/beds/availability")
+    @Operation(summary = "Get bed counts by type and status")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getBedAvailability(@PathVariable String hospitalId,
+                                                @RequestParam(required = false) String type) {
+        try {
+            List<BedAvailabilityDto> availability = bedService.getAvailability(hospitalId, type);
+            return ResponseEntity.ok(availability);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_BED_TYPE",
+                "message", "Unknown bed type: " + type
+            ));
+        }
+    }
+
+    @PostMapping("/{hospitalId}/beds/reservations")
+    @Operation(summary = "Reserve an available bed")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> reserveBed(@PathVariable String hospitalId,
+                                        @RequestBody BedReservationRequest request,
+                                        @AuthenticationPrincipal User user) {
+        try {
+            BedDto bed = bedService.reserveBed(hospitalId, request, user.getId());
+            if (bed == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", "BED_UNAVAILABLE",
+                    "message", "No matching bed is available"
+                ));
+            }
+            return ResponseEntity.ok(bed);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_RESERVATION",
+                "message", e.getMessage()
+            ));
+        }
     }
 
     @GetMapping("/{hospitalId}/staff")
-    @Operation(summary = "Get all staff for a hospital")
+    @Operation(summary = "Get the staff of a hospital, one page at a time")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN')")
+    public ResponseEntity<?> getStaff(@PathVariable String hospitalId,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "100") int limit,
+                                      @RequestParam(required = false) String fields,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        try {
+            Set<String> selected = StaffService.FIELDS.parse(fields);
+            int size = pageSize(limit);
+            // Nothing in the backend writes staff, so pages are only refreshed by the cache TTL
+            String key = pageKey("staff", hospitalId, 0, cursor, size, selected);
+            return responseCache.get(key, acceptEncoding, () -> pageResponse(
+                    staffService.getStaff(hospitalId, cursor, size, selected), selected, StaffService.FIELDS));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_QUERY",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping(value = "/{hospitalId}/staff", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all staff of a hospital as newline-delimited JSON")
     @PreAuthorize("hasRole('HOSPITAL_ADMIN')")
-    public ResponseEntity<List<StaffDto>> getStaff(@PathVariable String hospitalId) {
-        List<StaffDto> staff = hospitalService.getStaff(hospitalId);
-        return ResponseEntity.ok(staff);
+    public ResponseEntity<StreamingResponseBody> streamStaff(@PathVariable String hospitalId,
+                                                             @RequestParam(required = false) String fields) {
+        Set<String> selected;
+        try {
+            selected = StaffService.FIELDS.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return NdjsonBody.badRequest(objectMapper, "INVALID_QUERY", e.getMessage());
+        }
+        Stream<StaffDto> staff = staffService.streamStaff(hospitalId, selected);
+        return NdjsonBody.of(objectMapper, selected != null
+                ? staff.map(member -> StaffService.FIELDS.project(member, selected))
+                : staff);
     }
 
     @GetMapping("/assignments")
-    @Operation(summary = "Get assignments for current user")
-    public ResponseEntity<List<AssignmentDto>> getAssignments() {
-        List<AssignmentDto> assignments = hospitalService.getAssignments();
+    @Operation(summary = "Get the next open assignments of the current user, most urgent first")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<AssignmentDto>> getAssignments(@RequestParam(defaultValue = "20") int limit,
+                                                              @AuthenticationPrincipal User user) {
+        List<AssignmentDto> assignments = assignmentService.getNextAssignments(user.getId(), pageSize(limit));
         return ResponseEntity.ok(assignments);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/assignments")
+    @Operation(summary = "Create an assignment")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<?> createAssignment(@RequestBody AssignmentRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(assignmentService.createAssignment(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_ASSIGNMENT",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @PutMapping("/assignments/{assignmentId}")
+    @Operation(summary = "Update the status of an assignment")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<?> updateAssignment(@PathVariable String assignmentId,
+                                              @Valid @RequestBody AssignmentStatusUpdateDto statusUpdate) {
+        try {
+            return ResponseEntity.ok(assignmentService.updateStatus(assignmentId, statusUpdate));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "INVALID_STATUS",
+                "message", "Unknown assignment status: " + statusUpdate.getStatus()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "error", "ASSIGNMENT_NOT_FOUND",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    @GetMapping("/beds/{bedId}/assignments")
+    @Operation(summary = "Get the open assignments for a bed, most urgent first")
+    @PreAuthorize("hasRole('HOSPITAL_ADMIN') or hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<List<AssignmentDto>> getBedAssignments(@PathVariable String bedId) {
+        return ResponseEntity.ok(assignmentService.getBedAssignments(bedId));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamBeds(List<String> hospitalIds, String fields) {
+        Set<String> selected;
+        try {
+            selected = BedService.FIELDS.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return NdjsonBody.badRequest(objectMapper, "INVALID_QUERY", e.getMessage());
+        }
+        Stream<BedDto> beds = bedService.streamBeds(hospitalIds, selected);
+        return NdjsonBody.of(objectMapper, selected != null
+                ? beds.map(bed -> BedService.FIELDS.project(bed, selected))
+                : beds);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static String pageKey(String endpoint, String hospitalId, long version, String cursor, int size,
+                                  Set<String> fields) {
+        return endpoint + ":" + hospitalId + ":" + version + ":" + cursor + ":" + size + ":"
+                + (fields != null ? String.join(",", new TreeSet<>(fields)) : "*");
+    }
+
+    private static <T> ResponseEntity<?> pageResponse(CursorPage<T> page, Set<String> fields,
+                                                      FieldProjection<T> projection) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(fields != null ? projection.project(page.getItems(), fields) : page.getItems());
+    }
+}
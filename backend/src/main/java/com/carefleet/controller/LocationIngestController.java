@@ -0,0 +1,65 @@
+package com.carefleet.controller;
+
+import com.carefleet.service.AmbulanceService;
+import com.carefleet.service.LocationPingCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Location ingest over the STOMP connection. The connection is authenticated once at CONNECT,
+ * so each burst of pings costs one binary frame instead of an HTTP request with its own token
+ * check. Every frame is acknowledged on the sender's /user/queue/locations/ack.
+ */
+@Controller
+public class LocationIngestController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationIngestController.class);
+
+    @Autowired
+    private AmbulanceService ambulanceService;
+
+    @MessageMapping("/ambulances/{ambulanceId}/locations")
+    @SendToUser(destinations = "/queue/locations/ack", broadcast = false)
+    public Map<String, Object> ingest(@DestinationVariable String ambulanceId, @Payload byte[] payload,
+                                      Principal principal) {
+        if (!isDriver(principal)) {
+            return Map.of(
+                "error", "ACCESS_DENIED",
+                "message", "Only ambulance drivers can report locations"
+            );
+        }
+        try {
+            ByteBuffer pings = ByteBuffer.wrap(payload);
+            int received = LocationPingCodec.count(pings);
+            int accepted = ambulanceService.ingestPings(ambulanceId, pings);
+            return Map.of(
+                "ambulanceId", ambulanceId,
+                "accepted", accepted,
+                "rejected", received - accepted
+            );
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected location payload for ambulance {}: {}", ambulanceId, e.getMessage());
+            return Map.of(
+                "error", "INVALID_PAYLOAD",
+                "message", e.getMessage()
+            );
+        }
+    }
+
+    private static boolean isDriver(Principal principal) {
+        return principal instanceof Authentication authentication
+                && authentication.getAuthorities().stream()
+                        .anyMatch(authority -> "ROLE_AMBULANCE_DRIVER".equals(authority.getAuthority()));
+    }
+}
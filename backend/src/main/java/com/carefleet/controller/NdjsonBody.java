@@ -0,0 +1,69 @@
+package com.carefleet.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream as newline-delimited JSON, one value per line. Values are pulled from the
+ * stream only as they are written, so a listing backed by a MongoDB cursor or the live position
+ * store never sits in memory as a whole. The stream is closed once written, or when the client
+ * goes away, which releases any cursor behind it.
+ */
+final class NdjsonBody implements StreamingResponseBody {
+
+    // Lets clients start rendering early without sending one chunk per line
+    static final int FLUSH_EVERY = 256;
+
+    private final ObjectWriter writer;
+    private final Stream<?> values;
+
+    NdjsonBody(ObjectMapper objectMapper, Stream<?> values) {
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        this.values = values;
+    }
+
+    static ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper, Stream<?> values) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(new NdjsonBody(objectMapper, values));
+    }
+
+    /**
+     * A plain JSON error for requests rejected before anything was streamed.
+     */
+    static ResponseEntity<StreamingResponseBody> badRequest(ObjectMapper objectMapper, String error, String message) {
+        Map<String, String> body = Map.of("error", error, "message", message);
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, body));
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (Stream<?> stream = values;
+             JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            int written = 0;
+            for (Iterator<?> it = stream.iterator(); it.hasNext(); ) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+}
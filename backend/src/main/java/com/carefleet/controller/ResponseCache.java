@@ -0,0 +1,134 @@
+package com.carefleet.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read responses kept as the bytes that go on the wire, and gzipped once when large enough, so a
+ * repeated read is a buffer write rather than another Jackson pass. Callers put the version of
+ * the data in the key: a write bumps the version and later reads miss, while entries for old
+ * versions age out. Concurrent misses on one key build the response once.
+ */
+@Component
+class ResponseCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${responses.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    // Also bounds how long a change made through another backend instance can go unseen
+    @Value("${responses.cache.ttl-ms:5000}")
+    private long ttlMs;
+
+    @Value("${responses.cache.gzip-min-bytes:2048}")
+    private int gzipMinBytes;
+
+    private Cache<String, Encoded> entries;
+
+    @PostConstruct
+    public void init() {
+        entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Encoded encoded) -> encoded.weight())
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "responses");
+    }
+
+    /**
+     * Serves the cached response for the key, building it with {@code loader} on a miss. The
+     * loader must only return successful responses; its headers are cached along with the body.
+     * Exceptions it throws reach the caller and nothing is cached.
+     */
+    ResponseEntity<byte[]> get(String key, String acceptEncoding, Supplier<ResponseEntity<?>> loader) {
+        Encoded encoded = entries.get(key, k -> encode(loader.get()));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .headers(encoded.headers)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (encoded.gzipped == null) {
+            return response.contentLength(encoded.json.length).body(encoded.json);
+        }
+        response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(encoded.gzipped.length)
+                    .body(encoded.gzipped);
+        }
+        return response.contentLength(encoded.json.length).body(encoded.json);
+    }
+
+    private Encoded encode(ResponseEntity<?> response) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+        return new Encoded(HttpHeaders.readOnlyHttpHeaders(response.getHeaders()), json,
+                json.length >= gzipMinBytes ? gzip(json) : null);
+    }
+
+    static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static final class Encoded {
+        private final HttpHeaders headers;
+        private final byte[] json;
+        private final byte[] gzipped;
+
+        Encoded(HttpHeaders headers, byte[] json, byte[] gzipped) {
+            this.headers = headers;
+            this.json = json;
+            this.gzipped = gzipped;
+        }
+
+        int weight() {
+            return json.length + (gzipped != null ? gzipped.length : 0);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.carefleet.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AmbulanceDeltaDto {
+    private String id;
+    private Double latitude;
+    private Double longitude;
+    private Double speed;
+    private Double heading;
+    private String timestamp;
+    private String status;
+    private String destinationHospitalId;
+    private Boolean patientOnBoard;
+
+    public AmbulanceDeltaDto() {}
+
+    public AmbulanceDeltaDto(String id) {
+        this.id = id;
+    }
+
+    public boolean hasChanges() {
+        return latitude != null || longitude != null || speed != null || heading != null
+                || status != null || destinationHospitalId != null || patientOnBoard != null;
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public Double getSpeed() { return speed; }
+    public void setSpeed(Double speed) { this.speed = speed; }
+
+    public Double getHeading() { return heading; }
+    public void setHeading(Double heading) { this.heading = heading; }
+
+    public String getTimestamp() { return timestamp; }
+    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getDestinationHospitalId() { return destinationHospitalId; }
+    public void setDestinationHospitalId(String destinationHospitalId) { this.destinationHospitalId = destinationHospitalId; }
+
+    public Boolean getPatientOnBoard() { return patientOnBoard; }
+    public void setPatientOnBoard(Boolean patientOnBoard) { this.patientOnBoard = patientOnBoard; }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.carefleet.dto;
+
+import java.util.List;
+
+public class AmbulanceDeltaFrameDto {
+    private long sequence;
+    private String timestamp;
+    private List<AmbulanceDeltaDto> changes;
+
+    public AmbulanceDeltaFrameDto() {}
+
+    public AmbulanceDeltaFrameDto(long sequence, String timestamp, List<AmbulanceDeltaDto> changes) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.changes = changes;
+    }
+
+    // Getters and setters
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+
+    public String getTimestamp() { return timestamp; }
+    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+
+    public List<AmbulanceDeltaDto> getChanges() { return changes; }
+    public void setChanges(List<AmbulanceDeltaDto> changes) { this.changes = changes; }
+}
\ No newline at end of file
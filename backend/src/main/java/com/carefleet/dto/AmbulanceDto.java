@@ -14,6 +14,8 @@ public class AmbulanceDto {
     public static class LocationDto {
         private double latitude;
         private double longitude;
+        private Double speed;
+        private Double heading;
         private String timestamp;
 
         // Getters and setters
@@ -23,6 +25,12 @@ public class AmbulanceDto {
         public double getLongitude() { return longitude; }
         public void setLongitude(double longitude) { this.longitude = longitude; }
 
+        public Double getSpeed() { return speed; }
+        public void setSpeed(Double speed) { this.speed = speed; }
+
+        public Double getHeading() { return heading; }
+        public void setHeading(Double heading) { this.heading = heading; }
+
         public String getTimestamp() { return timestamp; }
         public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
     }
@@ -0,0 +1,21 @@
+package com.carefleet.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class AmbulanceStatusUpdateDto {
+    @NotBlank(message = "Status is required")
+    private String status;
+
+    private String destinationHospitalId;
+    private Boolean patientOnBoard;
+
+    // Getters and setters
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getDestinationHospitalId() { return destinationHospitalId; }
+    public void setDestinationHospitalId(String destinationHospitalId) { this.destinationHospitalId = destinationHospitalId; }
+
+    public Boolean getPatientOnBoard() { return patientOnBoard; }
+    public void setPatientOnBoard(Boolean patientOnBoard) { this.patientOnBoard = patientOnBoard; }
+}
\ No newline at end of file
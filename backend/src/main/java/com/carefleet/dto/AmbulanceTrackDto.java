@@ -0,0 +1,37 @@
+package com.carefleet.dto;
+
+import java.util.List;
+
+public class AmbulanceTrackDto {
+    private String ambulanceId;
+    private String resolution;
+    private String from;
+    private String to;
+    private List<TrackPointDto> points;
+
+    public AmbulanceTrackDto() {}
+
+    public AmbulanceTrackDto(String ambulanceId, String resolution, String from, String to, List<TrackPointDto> points) {
+        this.ambulanceId = ambulanceId;
+        this.resolution = resolution;
+        this.from = from;
+        this.to = to;
+        this.points = points;
+    }
+
+    // Getters and setters
+    public String getAmbulanceId() { return ambulanceId; }
+    public void setAmbulanceId(String ambulanceId) { this.ambulanceId = ambulanceId; }
+
+    public String getResolution() { return resolution; }
+    public void setResolution(String resolution) { this.resolution = resolution; }
+
+    public String getFrom() { return from; }
+    public void setFrom(String from) { this.from = from; }
+
+    public String getTo() { return to; }
+    public void setTo(String to) { this.to = to; }
+
+    public List<TrackPointDto> getPoints() { return points; }
+    public void setPoints(List<TrackPointDto> points) { this.points = points; }
+}
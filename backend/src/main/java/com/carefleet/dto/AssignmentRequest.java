@@ -0,0 +1,33 @@
+package com.carefleet.dto;
+
+public class AssignmentRequest {
+    private String staffId;
+    private String patientId;
+    private String bedId;
+    private String taskType;
+    private String description;
+    private String priority;
+    private String scheduledTime;
+
+    // Getters and setters
+    public String getStaffId() { return staffId; }
+    public void setStaffId(String staffId) { this.staffId = staffId; }
+
+    public String getPatientId() { return patientId; }
+    public void setPatientId(String patientId) { this.patientId = patientId; }
+
+    public String getBedId() { return bedId; }
+    public void setBedId(String bedId) { this.bedId = bedId; }
+
+    public String getTaskType() { return taskType; }
+    public void setTaskType(String taskType) { this.taskType = taskType; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public String getPriority() { return priority; }
+    public void setPriority(String priority) { this.priority = priority; }
+
+    public String getScheduledTime() { return scheduledTime; }
+    public void setScheduledTime(String scheduledTime) { this.scheduledTime = scheduledTime; }
+}
@@ -0,0 +1,17 @@
+package com.carefleet.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class AssignmentStatusUpdateDto {
+    @NotBlank(message = "Status is required")
+    private String status;
+
+    private String notes;
+
+    // Getters and setters
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+}
@@ -0,0 +1,46 @@
+package com.carefleet.dto;
+
+public class BedAvailabilityDto {
+    private String hospitalId;
+    private String type;
+    private int available;
+    private int reserved;
+    private int occupied;
+    private int maintenance;
+    private int total;
+
+    public BedAvailabilityDto() {}
+
+    public BedAvailabilityDto(String hospitalId, String type, int available, int reserved,
+                              int occupied, int maintenance) {
+        this.hospitalId = hospitalId;
+        this.type = type;
+        this.available = available;
+        this.reserved = reserved;
+        this.occupied = occupied;
+        this.maintenance = maintenance;
+        this.total = available + reserved + occupied + maintenance;
+    }
+
+    // Getters and setters
+    public String getHospitalId() { return hospitalId; }
+    public void setHospitalId(String hospitalId) { this.hospitalId = hospitalId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public int getAvailable() { return available; }
+    public void setAvailable(int available) { this.available = available; }
+
+    public int getReserved() { return reserved; }
+    public void setReserved(int reserved) { this.reserved = reserved; }
+
+    public int getOccupied() { return occupied; }
+    public void setOccupied(int occupied) { this.occupied = occupied; }
+
+    public int getMaintenance() { return maintenance; }
+    public void setMaintenance(int maintenance) { this.maintenance = maintenance; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+}
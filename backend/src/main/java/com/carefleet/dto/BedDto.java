@@ -8,6 +8,8 @@ public class BedDto {
     private String status;
     private String patientId;
     private String assignedStaffId;
+    private String reservedBy;
+    private String reservedUntil;
     private String createdAt;
     private String updatedAt;
 
@@ -48,6 +50,12 @@ public class BedDto {
     public String getAssignedStaffId() { return assignedStaffId; }
     public void setAssignedStaffId(String assignedStaffId) { this.assignedStaffId = assignedStaffId; }
 
+    public String getReservedBy() { return reservedBy; }
+    public void setReservedBy(String reservedBy) { this.reservedBy = reservedBy; }
+
+    public String getReservedUntil() { return reservedUntil; }
+    public void setReservedUntil(String reservedUntil) { this.reservedUntil = reservedUntil; }
+
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
 
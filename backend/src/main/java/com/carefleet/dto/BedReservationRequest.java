@@ -0,0 +1,14 @@
+package com.carefleet.dto;
+
+public class BedReservationRequest {
+    // Either a specific bed, or any available bed of the given type
+    private String bedId;
+    private String type;
+
+    // Getters and setters
+    public String getBedId() { return bedId; }
+    public void setBedId(String bedId) { this.bedId = bedId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+}
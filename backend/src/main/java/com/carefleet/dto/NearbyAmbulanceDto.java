@@ -0,0 +1,20 @@
+package com.carefleet.dto;
+
+public class NearbyAmbulanceDto {
+    private AmbulanceDto ambulance;
+    private double distanceKm;
+
+    public NearbyAmbulanceDto() {}
+
+    public NearbyAmbulanceDto(AmbulanceDto ambulance, double distanceKm) {
+        this.ambulance = ambulance;
+        this.distanceKm = distanceKm;
+    }
+
+    // Getters and setters
+    public AmbulanceDto getAmbulance() { return ambulance; }
+    public void setAmbulance(AmbulanceDto ambulance) { this.ambulance = ambulance; }
+
+    public double getDistanceKm() { return distanceKm; }
+    public void setDistanceKm(double distanceKm) { this.distanceKm = distanceKm; }
+}
\ No newline at end of file
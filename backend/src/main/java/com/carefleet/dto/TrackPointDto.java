@@ -0,0 +1,47 @@
+package com.carefleet.dto;
+
+public class TrackPointDto {
+    private String timestamp;
+    private double latitude;
+    private double longitude;
+    private Double speed;
+    private Double heading;
+    // Only set on downsampled points
+    private Double maxSpeed;
+    private Integer samples;
+
+    public TrackPointDto() {}
+
+    public TrackPointDto(String timestamp, double latitude, double longitude, Double speed, Double heading,
+                         Double maxSpeed, Integer samples) {
+        this.timestamp = timestamp;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.speed = speed;
+        this.heading = heading;
+        this.maxSpeed = maxSpeed;
+        this.samples = samples;
+    }
+
+    // Getters and setters
+    public String getTimestamp() { return timestamp; }
+    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public Double getSpeed() { return speed; }
+    public void setSpeed(Double speed) { this.speed = speed; }
+
+    public Double getHeading() { return heading; }
+    public void setHeading(Double heading) { this.heading = heading; }
+
+    public Double getMaxSpeed() { return maxSpeed; }
+    public void setMaxSpeed(Double maxSpeed) { this.maxSpeed = maxSpeed; }
+
+    public Integer getSamples() { return samples; }
+    public void setSamples(Integer samples) { this.samples = samples; }
+}
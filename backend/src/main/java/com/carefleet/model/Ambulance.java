@@ -0,0 +1,93 @@
+package com.carefleet.model;
+
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+@Document(collection = "ambulances")
+public class Ambulance {
+    @Id
+    private String id;
+
+    @Indexed(unique = true, sparse = true)
+    private String licensePlate;
+
+    private String driverId;
+    private String status = "AVAILABLE";
+    private Location currentLocation;
+    private String destinationHospitalId;
+    private boolean patientOnBoard = false;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
+    public static class Location {
+        private double latitude;
+        private double longitude;
+        private Double speed;
+        private Double heading;
+        private Instant timestamp;
+
+        public Location() {}
+
+        public Location(double latitude, double longitude, Double speed, Double heading, Instant timestamp) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.speed = speed;
+            this.heading = heading;
+            this.timestamp = timestamp;
+        }
+
+        // Getters and setters
+        public double getLatitude() { return latitude; }
+        public void setLatitude(double latitude) { this.latitude = latitude; }
+
+        public double getLongitude() { return longitude; }
+        public void setLongitude(double longitude) { this.longitude = longitude; }
+
+        public Double getSpeed() { return speed; }
+        public void setSpeed(Double speed) { this.speed = speed; }
+
+        public Double getHeading() { return heading; }
+        public void setHeading(Double heading) { this.heading = heading; }
+
+        public Instant getTimestamp() { return timestamp; }
+        public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getLicensePlate() { return licensePlate; }
+    public void setLicensePlate(String licensePlate) { this.licensePlate = licensePlate; }
+
+    public String getDriverId() { return driverId; }
+    public void setDriverId(String driverId) { this.driverId = driverId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Location getCurrentLocation() { return currentLocation; }
+    public void setCurrentLocation(Location currentLocation) { this.currentLocation = currentLocation; }
+
+    public String getDestinationHospitalId() { return destinationHospitalId; }
+    public void setDestinationHospitalId(String destinationHospitalId) { this.destinationHospitalId = destinationHospitalId; }
+
+    public boolean isPatientOnBoard() { return patientOnBoard; }
+    public void setPatientOnBoard(boolean patientOnBoard) { this.patientOnBoard = patientOnBoard; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.carefleet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A time-series collection keyed by ambulanceId; created with its indexes by TrackHistoryService
+@Document(collection = "ambulance_locations")
+public class AmbulanceLocation {
+    @Id
+    private String id;
+
+    private String ambulanceId;
+    private double latitude;
+    private double longitude;
+    private Double speed;
+    private Double heading;
+    private Instant timestamp;
+
+    public AmbulanceLocation() {}
+
+    public AmbulanceLocation(String ambulanceId, double latitude, double longitude,
+                             Double speed, Double heading, Instant timestamp) {
+        this.ambulanceId = ambulanceId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.speed = speed;
+        this.heading = heading;
+        this.timestamp = timestamp;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getAmbulanceId() { return ambulanceId; }
+    public void setAmbulanceId(String ambulanceId) { this.ambulanceId = ambulanceId; }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public Double getSpeed() { return speed; }
+    public void setSpeed(Double speed) { this.speed = speed; }
+
+    public Double getHeading() { return heading; }
+    public void setHeading(Double heading) { this.heading = heading; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.carefleet.model;
+
+public enum AmbulanceStatus {
+    AVAILABLE,
+    IN_TRANSIT,
+    AT_SCENE,
+    TO_HOSPITAL,
+    MAINTENANCE
+}
\ No newline at end of file
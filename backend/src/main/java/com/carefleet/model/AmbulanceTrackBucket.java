@@ -0,0 +1,64 @@
+package com.carefleet.model;
+
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+
+/**
+ * One downsampled interval of an ambulance's track. Stored in one collection per resolution,
+ * keyed by ambulance id and bucket start, so recomputing a bucket replaces it.
+ */
+public class AmbulanceTrackBucket {
+    @Id
+    private String id;
+
+    private String ambulanceId;
+    // Start of the interval
+    private Instant timestamp;
+    // Last reported position and heading within the interval
+    private double latitude;
+    private double longitude;
+    private Double heading;
+    private Double speed;
+    private Double maxSpeed;
+    private int samples;
+    // Kept so coarser tiers can average speed over the underlying pings
+    private double speedSum;
+    private int speedSamples;
+
+    public AmbulanceTrackBucket() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getAmbulanceId() { return ambulanceId; }
+    public void setAmbulanceId(String ambulanceId) { this.ambulanceId = ambulanceId; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public Double getHeading() { return heading; }
+    public void setHeading(Double heading) { this.heading = heading; }
+
+    public Double getSpeed() { return speed; }
+    public void setSpeed(Double speed) { this.speed = speed; }
+
+    public Double getMaxSpeed() { return maxSpeed; }
+    public void setMaxSpeed(Double maxSpeed) { this.maxSpeed = maxSpeed; }
+
+    public int getSamples() { return samples; }
+    public void setSamples(int samples) { this.samples = samples; }
+
+    public double getSpeedSum() { return speedSum; }
+    public void setSpeedSum(double speedSum) { this.speedSum = speedSum; }
+
+    public int getSpeedSamples() { return speedSamples; }
+    public void setSpeedSamples(int speedSamples) { this.speedSamples = speedSamples; }
+}
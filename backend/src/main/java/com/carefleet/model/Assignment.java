@@ -0,0 +1,93 @@
+package com.carefleet.model;
+
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+@Document(collection = "assignments")
+@CompoundIndexes({
+    @CompoundIndex(name = "status_staff", def = "{'status': 1, 'staffId': 1}"),
+    @CompoundIndex(name = "bed_status", def = "{'bedId': 1, 'status': 1}")
+})
+public class Assignment {
+    @Id
+    private String id;
+
+    private String staffId;
+    private String patientId;
+    private String bedId;
+    private String taskType;
+    private String description;
+    private AssignmentPriority priority = AssignmentPriority.MEDIUM;
+    private AssignmentStatus status = AssignmentStatus.PENDING;
+    private Instant scheduledTime;
+    private Instant completedTime;
+    private String notes;
+
+    // Bumped on every write, so an older copy never replaces a newer one in the assignment queue
+    private long version;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
+    public Assignment() {}
+
+    public Assignment(String staffId, String taskType, AssignmentPriority priority, Instant scheduledTime) {
+        this.staffId = staffId;
+        this.taskType = taskType;
+        this.priority = priority;
+        this.scheduledTime = scheduledTime;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getStaffId() { return staffId; }
+    public void setStaffId(String staffId) { this.staffId = staffId; }
+
+    public String getPatientId() { return patientId; }
+    public void setPatientId(String patientId) { this.patientId = patientId; }
+
+    public String getBedId() { return bedId; }
+    public void setBedId(String bedId) { this.bedId = bedId; }
+
+    public String getTaskType() { return taskType; }
+    public void setTaskType(String taskType) { this.taskType = taskType; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public AssignmentPriority getPriority() { return priority; }
+    public void setPriority(AssignmentPriority priority) { this.priority = priority; }
+
+    public AssignmentStatus getStatus() { return status; }
+    public void setStatus(AssignmentStatus status) { this.status = status; }
+
+    public Instant getScheduledTime() { return scheduledTime; }
+    public void setScheduledTime(Instant scheduledTime) { this.scheduledTime = scheduledTime; }
+
+    public Instant getCompletedTime() { return completedTime; }
+    public void setCompletedTime(Instant completedTime) { this.completedTime = completedTime; }
+
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
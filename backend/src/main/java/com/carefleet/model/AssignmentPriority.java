@@ -0,0 +1,8 @@
+package com.carefleet.model;
+
+public enum AssignmentPriority {
+    LOW,
+    MEDIUM,
+    HIGH,
+    CRITICAL
+}
@@ -0,0 +1,12 @@
+package com.carefleet.model;
+
+public enum AssignmentStatus {
+    PENDING,
+    IN_PROGRESS,
+    COMPLETED,
+    CANCELLED;
+
+    public boolean isOpen() {
+        return this == PENDING || this == IN_PROGRESS;
+    }
+}
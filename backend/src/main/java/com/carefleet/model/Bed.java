@@ -0,0 +1,80 @@
+package com.carefleet.model;
+
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+@Document(collection = "beds")
+@CompoundIndexes({
+    @CompoundIndex(name = "hospital_bed_number", def = "{'hospitalId': 1, 'bedNumber': 1}", unique = true),
+    @CompoundIndex(name = "hospital_type_status", def = "{'hospitalId': 1, 'type': 1, 'status': 1}")
+})
+public class Bed {
+    @Id
+    private String id;
+
+    private String hospitalId;
+    private String bedNumber;
+    private BedType type;
+    private BedStatus status = BedStatus.AVAILABLE;
+    private String patientId;
+    private String assignedStaffId;
+
+    // Set while the bed is RESERVED; the reservation lapses back to AVAILABLE after reservedUntil
+    private String reservedBy;
+    private Instant reservedUntil;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
+    public Bed() {}
+
+    public Bed(String hospitalId, String bedNumber, BedType type) {
+        this.hospitalId = hospitalId;
+        this.bedNumber = bedNumber;
+        this.type = type;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getHospitalId() { return hospitalId; }
+    public void setHospitalId(String hospitalId) { this.hospitalId = hospitalId; }
+
+    public String getBedNumber() { return bedNumber; }
+    public void setBedNumber(String bedNumber) { this.bedNumber = bedNumber; }
+
+    public BedType getType() { return type; }
+    public void setType(BedType type) { this.type = type; }
+
+    public BedStatus getStatus() { return status; }
+    public void setStatus(BedStatus status) { this.status = status; }
+
+    public String getPatientId() { return patientId; }
+    public void setPatientId(String patientId) { this.patientId = patientId; }
+
+    public String getAssignedStaffId() { return assignedStaffId; }
+    public void setAssignedStaffId(String assignedStaffId) { this.assignedStaffId = assignedStaffId; }
+
+    public String getReservedBy() { return reservedBy; }
+    public void setReservedBy(String reservedBy) { this.reservedBy = reservedBy; }
+
+    public Instant getReservedUntil() { return reservedUntil; }
+    public void setReservedUntil(Instant reservedUntil) { this.reservedUntil = reservedUntil; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,8 @@
+package com.carefleet.model;
+
+public enum BedStatus {
+    AVAILABLE,
+    RESERVED,
+    OCCUPIED,
+    MAINTENANCE
+}
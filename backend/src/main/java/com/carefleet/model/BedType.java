@@ -0,0 +1,9 @@
+package com.carefleet.model;
+
+public enum BedType {
+    ICU,
+    GENERAL,
+    EMERGENCY,
+    MATERNITY,
+    PEDIATRIC
+}
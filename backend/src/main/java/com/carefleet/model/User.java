@@ -47,6 +47,9 @@ public class User implements UserDetails {
     private int otpAttempts = 0;
     private LocalDateTime lastOtpRequest;
     
+    // Bumped to revoke every token issued before the change
+    private int tokenVersion = 0;
+    
     private boolean enabled = true;
     private boolean accountNonExpired = true;
     private boolean accountNonLocked = true;
@@ -141,6 +144,9 @@ public class User implements UserDetails {
     public LocalDateTime getLastOtpRequest() { return lastOtpRequest; }
     public void setLastOtpRequest(LocalDateTime lastOtpRequest) { this.lastOtpRequest = lastOtpRequest; }
 
+    public int getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
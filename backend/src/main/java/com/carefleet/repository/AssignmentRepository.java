@@ -0,0 +1,9 @@
+package com.carefleet.repository;
+
+import com.carefleet.model.Assignment;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AssignmentRepository extends MongoRepository<Assignment, String> {
+}
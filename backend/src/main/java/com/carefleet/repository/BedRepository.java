@@ -0,0 +1,10 @@
+package com.carefleet.repository;
+
+import com.carefleet.model.Bed;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BedRepository extends MongoRepository<Bed, String> {
+    boolean existsByHospitalIdAndBedNumber(String hospitalId, String bedNumber);
+}
@@ -0,0 +1,42 @@
+package com.carefleet.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thins out repetitive authentication failure logs. The first failure of each kind in an interval
+ * is logged, together with how many of that kind were suppressed in the interval before; the rest
+ * only bump a counter. A client retrying an expired token, or a scan with forged ones, costs one
+ * log line per interval instead of one per request.
+ */
+final class AuthFailureLogSampler {
+
+    private final long intervalNanos;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    AuthFailureLogSampler(long intervalMs) {
+        this.intervalNanos = intervalMs * 1_000_000;
+    }
+
+    /**
+     * Returns -1 if this failure should not be logged, otherwise the number of failures of the
+     * same kind suppressed since the last one logged.
+     */
+    long sample(String kind) {
+        return windows.computeIfAbsent(kind, k -> new Window()).sample(System.nanoTime(), intervalNanos);
+    }
+
+    private static final class Window {
+        private final AtomicLong openedAt = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong suppressed = new AtomicLong();
+
+        long sample(long now, long intervalNanos) {
+            long opened = openedAt.get();
+            if ((opened == Long.MIN_VALUE || now - opened >= intervalNanos) && openedAt.compareAndSet(opened, now)) {
+                return suppressed.getAndSet(0);
+            }
+            suppressed.incrementAndGet();
+            return -1;
+        }
+    }
+}
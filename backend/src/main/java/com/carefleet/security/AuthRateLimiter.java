@@ -0,0 +1,186 @@
+package com.carefleet.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Token buckets for the open authentication endpoints, one per client IP and one per account,
+ * checked before any password hashing or database work. Login is the exception for the account
+ * bucket: it is keyed by account and client IP and only charged for failed attempts, so neither
+ * a user's own logins nor someone guessing their password from elsewhere can lock them out. Buckets live in Redis so the limit holds
+ * across replicas. A key found empty is remembered locally until its next token is due, so a
+ * flood from one client is turned away without a Redis round trip; if Redis is unreachable each
+ * replica falls back to buckets of its own.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimiter.class);
+
+    static final String KEY_PREFIX = "carefleet:rate-limit:";
+
+    // Returns 0 when a token was available (and taken, with a cost of 1), otherwise the
+    // milliseconds until the next one
+    private static final RedisScript<Long> TAKE_TOKEN = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local refill_ms = tonumber(ARGV[2])
+            local now = tonumber(ARGV[3])
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) / refill_ms)
+            local wait = 0
+            if tokens >= 1 then
+              tokens = tokens - tonumber(ARGV[4])
+            else
+              wait = math.ceil((1 - tokens) * refill_ms)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * refill_ms))
+            return wait
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.rate-limit.ip.capacity:20}")
+    private int ipCapacity;
+
+    @Value("${auth.rate-limit.ip.refill-ms:6000}")
+    private long ipRefillMs;
+
+    @Value("${auth.rate-limit.account.capacity:5}")
+    private int accountCapacity;
+
+    @Value("${auth.rate-limit.account.refill-ms:180000}")
+    private long accountRefillMs;
+
+    // Keys known to be empty, with the time their next token is due
+    private Cache<String, Long> deniedUntil;
+
+    // Only used while Redis is unavailable
+    private Cache<String, LocalBucket> localBuckets;
+
+    @PostConstruct
+    public void init() {
+        deniedUntil = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(Math.max(ipRefillMs, accountRefillMs)))
+                .build();
+        localBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMillis(Math.max(ipCapacity * ipRefillMs, accountCapacity * accountRefillMs)))
+                .build();
+    }
+
+    /**
+     * Takes a token from the client's and the account's bucket for the endpoint. Returns 0 when
+     * the request may proceed, otherwise the milliseconds the caller should wait.
+     */
+    public long acquire(String endpoint, String clientIp, String account) {
+        long wait = take(endpoint + ":ip:" + clientIp, ipCapacity, ipRefillMs);
+        if (wait == 0 && account != null) {
+            wait = take(endpoint + ":account:" + account.trim().toLowerCase(Locale.ROOT), accountCapacity, accountRefillMs);
+        }
+        if (wait > 0) {
+            meterRegistry.counter("auth.rate_limit.rejected", "endpoint", endpoint).increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Admits a login attempt: takes a token from the client's bucket, and checks without taking
+     * one that the account has not run out of failed attempts from this client.
+     */
+    public long acquireLogin(String clientIp, String account) {
+        long wait = take("login:ip:" + clientIp, ipCapacity, ipRefillMs);
+        if (wait == 0 && account != null) {
+            wait = take(loginFailuresKey(clientIp, account), accountCapacity, accountRefillMs, 0);
+        }
+        if (wait > 0) {
+            meterRegistry.counter("auth.rate_limit.rejected", "endpoint", "login").increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Charges a failed login to the account's bucket for this client.
+     */
+    public void loginFailed(String clientIp, String account) {
+        if (account != null) {
+            take(loginFailuresKey(clientIp, account), accountCapacity, accountRefillMs, 1);
+        }
+    }
+
+    private static String loginFailuresKey(String clientIp, String account) {
+        return "login:failures:" + account.trim().toLowerCase(Locale.ROOT) + ":" + clientIp;
+    }
+
+    private long take(String key, int capacity, long refillMs) {
+        return take(key, capacity, refillMs, 1);
+    }
+
+    private long take(String key, int capacity, long refillMs, int cost) {
+        long now = System.currentTimeMillis();
+        Long until = deniedUntil.getIfPresent(key);
+        if (until != null && until > now) {
+            return until - now;
+        }
+
+        long wait;
+        try {
+            Long result = redisTemplate.execute(TAKE_TOKEN, List.of(KEY_PREFIX + key),
+                    String.valueOf(capacity), String.valueOf(refillMs), String.valueOf(now), String.valueOf(cost));
+            wait = result != null ? result : 0;
+        } catch (DataAccessException e) {
+            logger.debug("Redis unavailable, rate limiting {} locally", key);
+            wait = localBuckets.get(key, k -> new LocalBucket(capacity, now)).take(capacity, refillMs, now, cost);
+        }
+        if (wait > 0) {
+            deniedUntil.put(key, now + wait);
+        }
+        return wait;
+    }
+
+    static final class LocalBucket {
+        private double tokens;
+        private long updatedAt;
+
+        LocalBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+
+        long take(int capacity, long refillMs, long now) {
+            return take(capacity, refillMs, now, 1);
+        }
+
+        synchronized long take(int capacity, long refillMs, long now, int cost) {
+            tokens = Math.min(capacity, tokens + Math.max(0, now - updatedAt) / (double) refillMs);
+            updatedAt = now;
+            if (tokens >= 1) {
+                tokens -= cost;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * refillMs);
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package com.carefleet.security;
 
+import com.carefleet.model.User;
 import com.carefleet.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,6 +17,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -31,26 +39,53 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
+    @Value("${logging.auth-failures.sample-interval-ms:10000}")
+    private long failureLogIntervalMs;
+
+    private AuthFailureLogSampler failureLog;
+
+    private Timer parseTimer;
+    private Timer principalTimer;
+
+    @PostConstruct
+    public void init() {
+        failureLog = new AuthFailureLogSampler(failureLogIntervalMs);
+        parseTimer = Timer.builder("auth.jwt.parse")
+                .description("Time to verify a bearer token or find it in the claims cache")
+                .register(meterRegistry);
+        principalTimer = Timer.builder("auth.jwt.principal")
+                .description("Time to check revocation and build the principal for a verified token")
+                .register(meterRegistry);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userId = tokenProvider.getUserIdFromToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserById(userId);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (StringUtils.hasText(jwt)) {
+                UsernamePasswordAuthenticationToken authentication = authenticate(jwt);
+                if (authentication != null) {
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (ExpiredJwtException ex) {
-            logger.error("JWT token is expired: {}", ex.getMessage());
+            logRejected("expired", ex);
         } catch (MalformedJwtException ex) {
-            logger.error("Invalid JWT token: {}", ex.getMessage());
+            logRejected("malformed", ex);
+        } catch (JwtException ex) {
+            logRejected("invalid", ex);
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
@@ -58,6 +93,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Builds the authentication for a bearer token, or returns null if the token has been
+     * revoked. Throws {@link JwtException} for tokens that are expired, malformed or forged, and
+     * for refresh tokens.
+     */
+    public UsernamePasswordAuthenticationToken authenticate(String jwt) {
+        // Verifies the signature once and serves repeat requests with the same token from cache
+        Claims claims = parseTimer.record(() -> tokenProvider.getClaims(jwt));
+        if (tokenProvider.isRefreshToken(claims)) {
+            throw new UnsupportedJwtException("Refresh tokens are not accepted as bearer tokens");
+        }
+        String userId = claims.getSubject();
+        int tokenVersion = tokenProvider.getTokenVersion(claims);
+
+        UserDetails userDetails = principalTimer.record(() -> {
+            if (statelessPrincipal) {
+                return tokenRevocationService.isCurrent(userId, tokenVersion)
+                        ? tokenProvider.getUserFromClaims(claims)
+                        : null;
+            }
+            User user = (User) userDetailsService.loadUserById(userId);
+            return tokenVersion >= user.getTokenVersion() ? user : null;
+        });
+
+        if (userDetails == null) {
+            if (failureLog.sample("revoked") >= 0) {
+                logger.warn("Rejected revoked JWT token for user {}", userId);
+            }
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+
+    private void logRejected(String reason, JwtException ex) {
+        long suppressed = failureLog.sample(reason);
+        if (suppressed >= 0) {
+            logger.warn("Rejected {} JWT token: {} ({} more since the last report)", reason, ex.getMessage(), suppressed);
+        }
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
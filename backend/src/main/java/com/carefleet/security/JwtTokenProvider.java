@@ -1,23 +1,34 @@
 package com.carefleet.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import com.carefleet.model.User;
+import com.carefleet.model.UserRole;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    static final String REFRESH_TYPE = "refresh";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -27,8 +38,33 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration}")
     private int jwtRefreshExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${jwt.cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
+    @Value("${logging.auth-failures.sample-interval-ms:10000}")
+    private long failureLogIntervalMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AuthFailureLogSampler failureLog;
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> claimsCache;
+
+    @PostConstruct
+    public void init() {
+        failureLog = new AuthFailureLogSampler(failureLogIntervalMs);
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new ClaimsExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwt.claims");
     }
 
     public String generateToken(Authentication authentication) {
@@ -36,53 +72,146 @@ public class JwtTokenProvider {
         return generateTokenFromUser(userPrincipal, jwtExpirationInMs);
     }
 
-    public String generateRefreshToken(Authentication authentication) {
-        User userPrincipal = (User) authentication.getPrincipal();
-        return generateTokenFromUser(userPrincipal, jwtRefreshExpirationInMs);
+    public String generateAccessToken(User user) {
+        return generateTokenFromUser(user, jwtExpirationInMs);
+    }
+
+    /**
+     * A refresh token for the given family. It only differs from an access token in its id and
+     * the "typ" and "fam" claims, which {@link RefreshTokenStore} and the filter rely on.
+     */
+    public String generateRefreshToken(User user, String family, String tokenId) {
+        return builder(user, jwtRefreshExpirationInMs)
+                .id(tokenId)
+                .claim("typ", REFRESH_TYPE)
+                .claim("fam", family)
+                .compact();
     }
 
     public String generateTokenFromUser(User user, int expiration) {
+        return builder(user, expiration).compact();
+    }
+
+    private JwtBuilder builder(User user, int expiration) {
         Date expiryDate = new Date(System.currentTimeMillis() + expiration);
 
         return Jwts.builder()
-                .setSubject(user.getId())
+                .subject(user.getId())
                 .claim("email", user.getEmail())
                 .claim("role", user.getRole().name())
                 .claim("firstName", user.getFirstName())
                 .claim("lastName", user.getLastName())
                 .claim("isEmailVerified", user.isEmailVerified())
-                .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
+                .claim("hospitalId", user.getHospitalId())
+                .claim("ver", user.getTokenVersion())
+                .issuedAt(new Date())
+                .expiration(expiryDate)
+                .signWith(signingKey);
     }
 
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Returns the verified claims of a token, parsing and checking the signature only the first
+     * time a given token is seen. Throws a {@link JwtException} if the token is invalid.
+     */
+    public Claims getClaims(String token) {
+        Claims claims = claimsCache.getIfPresent(token);
+        if (claims != null) {
+            // The entry is evicted at expiry, but the clock may have moved past it since the lookup
+            if (claims.getExpiration() != null && claims.getExpiration().getTime() <= System.currentTimeMillis()) {
+                claimsCache.invalidate(token);
+                throw new ExpiredJwtException(null, claims, "JWT expired");
+            }
+            return claims;
+        }
+
+        claims = parser.parseSignedClaims(token).getPayload();
+        claimsCache.put(token, claims);
+        return claims;
+    }
+
+    /**
+     * Rebuilds the principal from the claims written by {@link #generateTokenFromUser}, so an
+     * authenticated request does not need to load the user from MongoDB.
+     */
+    public User getUserFromClaims(Claims claims) {
+        User user = new User(
+                claims.get("email", String.class),
+                null,
+                claims.get("firstName", String.class),
+                claims.get("lastName", String.class),
+                UserRole.valueOf(claims.get("role", String.class)));
+        user.setId(claims.getSubject());
+        user.setHospitalId(claims.get("hospitalId", String.class));
+        user.setEmailVerified(Boolean.TRUE.equals(claims.get("isEmailVerified", Boolean.class)));
+        user.setTokenVersion(getTokenVersion(claims));
+        return user;
+    }
+
+    public int getTokenVersion(Claims claims) {
+        // Tokens issued before versioning was introduced carry no claim and count as version 0
+        Integer version = claims.get("ver", Integer.class);
+        return version != null ? version : 0;
+    }
 
-        return claims.getSubject();
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_TYPE.equals(claims.get("typ", String.class));
+    }
+
+    public String getRefreshFamily(Claims claims) {
+        return claims.get("fam", String.class);
+    }
+
+    public String getUserIdFromToken(String token) {
+        return getClaims(token).getSubject();
     }
 
     public boolean validateToken(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
+            getClaims(authToken);
             return true;
         } catch (MalformedJwtException ex) {
-            logger.error("Invalid JWT token");
+            logRejected("malformed");
         } catch (ExpiredJwtException ex) {
-            logger.error("Expired JWT token");
+            logRejected("expired");
         } catch (UnsupportedJwtException ex) {
-            logger.error("Unsupported JWT token");
+            logRejected("unsupported");
         } catch (IllegalArgumentException ex) {
-            logger.error("JWT claims string is empty.");
+            logRejected("empty");
+        } catch (JwtException ex) {
+            logRejected("bad signature");
         }
         return false;
     }
+
+    private void logRejected(String reason) {
+        long suppressed = failureLog.sample(reason);
+        if (suppressed >= 0) {
+            logger.warn("Rejected JWT token: {} ({} more since the last report)", reason, suppressed);
+        }
+    }
+
+    private static final class ClaimsExpiry implements Expiry<String, Claims> {
+
+        private static final long DEFAULT_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return DEFAULT_TTL_NANOS;
+            }
+            long remainingMs = expiration.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.carefleet.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Refresh token families in Redis. Logging in opens a family; every refresh replaces the
+ * family's current token id and bumps its rotation counter, in one script call. The token just
+ * rotated away stays acceptable for a short grace period, answered with the current id rather
+ * than a new one, so a retry after a lost response or a second browser tab racing the first
+ * does not end the session. Presenting any older token means it was replayed, so the whole
+ * family is dropped and its holder has to log in again. Each family expires with its newest
+ * refresh token.
+ *
+ * There is no fallback when Redis is unreachable: a refresh token that cannot be checked is not
+ * honoured.
+ */
+@Component
+public class RefreshTokenStore {
+
+    static final String KEY_PREFIX = "carefleet:refresh-family:";
+
+    public enum Rotation {
+        ROTATED,
+        // The previous token again within the grace period; the current token is handed out again
+        RETRIED,
+        // The token was already rotated away; the family has been revoked
+        REUSED,
+        // Revoked, logged out or expired
+        UNKNOWN
+    }
+
+    private static final RedisScript<Long> OPEN = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], 'current', ARGV[1], 'rotation', 0)
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 0
+            """, Long.class);
+
+    // Returns the new rotation count and token id, 0 and the current id for a retry within the
+    // grace period, -1 for an unknown family and -2 for a replayed token
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ROTATE = new DefaultRedisScript<>("""
+            local state = redis.call('HMGET', KEYS[1], 'current', 'previous', 'rotatedAt')
+            if not state[1] then
+              return {'-1'}
+            end
+            if state[1] == ARGV[1] then
+              redis.call('HSET', KEYS[1], 'current', ARGV[2], 'previous', ARGV[1], 'rotatedAt', ARGV[5])
+              local rotation = redis.call('HINCRBY', KEYS[1], 'rotation', 1)
+              redis.call('PEXPIRE', KEYS[1], ARGV[3])
+              return {tostring(rotation), ARGV[2]}
+            end
+            if state[2] == ARGV[1] and tonumber(ARGV[5]) - tonumber(state[3]) <= tonumber(ARGV[4]) then
+              return {'0', state[1]}
+            end
+            redis.call('DEL', KEYS[1])
+            return {'-2'}
+            """, List.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${jwt.refresh-expiration}")
+    private long refreshExpirationMs;
+
+    @Value("${jwt.refresh-reuse-grace-ms:30000}")
+    private long reuseGraceMs;
+
+    /**
+     * Starts a family whose current token is {@code tokenId} and returns the family id.
+     */
+    public String open(String tokenId) {
+        String family = UUID.randomUUID().toString();
+        try {
+            redisTemplate.execute(OPEN, List.of(KEY_PREFIX + family), tokenId, String.valueOf(refreshExpirationMs));
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Refresh tokens are temporarily unavailable", e);
+        }
+        return family;
+    }
+
+    /**
+     * Rotates the family away from {@code presentedId}. The result carries the id to put in the
+     * new refresh token: {@code nextId} after a rotation, the family's current id after a retry.
+     */
+    public RotationResult rotate(String family, String presentedId, String nextId) {
+        List<?> result;
+        try {
+            result = redisTemplate.execute(ROTATE, List.of(KEY_PREFIX + family), presentedId, nextId,
+                    String.valueOf(refreshExpirationMs), String.valueOf(reuseGraceMs),
+                    String.valueOf(System.currentTimeMillis()));
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Refresh tokens are temporarily unavailable", e);
+        }
+        if (result == null || result.isEmpty()) {
+            return new RotationResult(Rotation.UNKNOWN, null);
+        }
+        long code = Long.parseLong(String.valueOf(result.get(0)));
+        if (code == -1) {
+            return new RotationResult(Rotation.UNKNOWN, null);
+        }
+        if (code == -2) {
+            return new RotationResult(Rotation.REUSED, null);
+        }
+        return new RotationResult(code == 0 ? Rotation.RETRIED : Rotation.ROTATED, String.valueOf(result.get(1)));
+    }
+
+    public void revoke(String family) {
+        try {
+            redisTemplate.delete(KEY_PREFIX + family);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Refresh tokens are temporarily unavailable", e);
+        }
+    }
+
+    public static final class RotationResult {
+        private final Rotation outcome;
+        private final String tokenId;
+
+        RotationResult(Rotation outcome, String tokenId) {
+            this.outcome = outcome;
+            this.tokenId = tokenId;
+        }
+
+        public Rotation getOutcome() { return outcome; }
+        public String getTokenId() { return tokenId; }
+    }
+}
@@ -0,0 +1,81 @@
+package com.carefleet.security;
+
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Authenticates a STOMP connection once, from the bearer token in the CONNECT frame, and keeps
+ * the result as the session user for every later frame. A connection without a token can
+ * neither subscribe nor send. Topics carry live fleet and patient state, so subscribing to them
+ * takes the same roles as {@code GET /ambulances}.
+ */
+@Component
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    private static final Set<String> TOPIC_AUTHORITIES = Set.of("ROLE_HOSPITAL_ADMIN", "ROLE_AMBULANCE_DRIVER");
+
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String bearerToken = accessor.getFirstNativeHeader("Authorization");
+            if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+                UsernamePasswordAuthenticationToken authentication;
+                try {
+                    authentication = jwtAuthenticationFilter.authenticate(bearerToken.substring(7));
+                } catch (JwtException e) {
+                    throw new MessageDeliveryException("Invalid token: " + e.getMessage());
+                }
+                if (authentication == null) {
+                    throw new MessageDeliveryException("Token has been revoked");
+                }
+                accessor.setUser(authentication);
+            }
+        } else if (StompCommand.SEND.equals(accessor.getCommand()) && accessor.getUser() == null) {
+            throw new MessageDeliveryException("Sending requires an authenticated connection");
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            if (accessor.getUser() == null) {
+                throw new MessageDeliveryException("Subscribing requires an authenticated connection");
+            }
+            String destination = accessor.getDestination();
+            if (destination != null && destination.startsWith("/topic/") && !mayReadTopics(accessor.getUser())) {
+                throw new MessageDeliveryException("Access denied to " + destination);
+            }
+        }
+        return message;
+    }
+
+    private static boolean mayReadTopics(Principal user) {
+        if (!(user instanceof Authentication authentication)) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (TOPIC_AUTHORITIES.contains(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
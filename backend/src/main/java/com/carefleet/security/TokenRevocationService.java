@@ -0,0 +1,144 @@
+package com.carefleet.security;
+
+import com.carefleet.model.User;
+import com.carefleet.service.UserDetailsServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Tracks the current token version of each user. A token whose "ver" claim is older than the
+ * user's version has been revoked. Lookups go through a short-lived local cache, then Redis
+ * (shared by all replicas), and only fall back to MongoDB when Redis has no entry.
+ *
+ * Versions only ever move up in Redis: a replica caching what it read from MongoDB cannot
+ * overwrite a newer version a revocation on another replica published in the meantime. A
+ * revocation that cannot be published to Redis fails, since replicas would otherwise keep
+ * trusting the old version until its Redis entry expires.
+ */
+@Component
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    static final String KEY_PREFIX = "carefleet:token-version:";
+
+    private static final int PUBLISH_ATTEMPTS = 3;
+
+    // Stores the version unless Redis already holds one at least as new; returns the stored version
+    private static final RedisScript<Long> SET_IF_GREATER = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and tonumber(current) >= tonumber(ARGV[1]) then
+              return tonumber(current)
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            return tonumber(ARGV[1])
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Value("${jwt.revocation.cache-ttl-ms:15000}")
+    private long cacheTtlMs;
+
+    @Value("${jwt.revocation.redis-ttl-ms:604800000}")
+    private long redisTtlMs;
+
+    private Cache<String, Integer> versions;
+
+    @PostConstruct
+    public void init() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .build();
+    }
+
+    public boolean isCurrent(String userId, int tokenVersion) {
+        return tokenVersion >= getVersion(userId);
+    }
+
+    public int getVersion(String userId) {
+        return versions.get(userId, this::loadVersion);
+    }
+
+    public int revokeAll(String userId) {
+        User user = mongoTemplate.findAndModify(
+                Query.query(where("id").is(userId)),
+                new Update().inc("tokenVersion", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
+        int version = user.getTokenVersion();
+        versions.put(userId, version);
+        userDetailsService.evict(user);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                publish(userId, version);
+                return version;
+            } catch (DataAccessException e) {
+                if (attempt == PUBLISH_ATTEMPTS) {
+                    // Other replicas read Redis first and would keep accepting the revoked tokens
+                    logger.warn("Could not publish token version for user {} to Redis", userId, e);
+                    throw new IllegalStateException("Token revocation could not be published, please try again", e);
+                }
+            }
+        }
+    }
+
+    private int loadVersion(String userId) {
+        try {
+            String cached = redisTemplate.opsForValue().get(KEY_PREFIX + userId);
+            if (cached != null) {
+                return Integer.parseInt(cached);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Redis unavailable while checking token version for user {}", userId);
+        }
+
+        Query query = Query.query(where("id").is(userId));
+        query.fields().include("tokenVersion");
+        User user = mongoTemplate.findOne(query, User.class);
+        // A deleted user has no valid tokens
+        int version = user != null ? user.getTokenVersion() : Integer.MAX_VALUE;
+        try {
+            // A revocation may have published a newer version since MongoDB was read
+            return publish(userId, version);
+        } catch (DataAccessException e) {
+            logger.debug("Could not cache token version for user {} in Redis", userId);
+        }
+        return version;
+    }
+
+    private int publish(String userId, int version) {
+        Long stored = redisTemplate.execute(SET_IF_GREATER, List.of(KEY_PREFIX + userId),
+                Integer.toString(version), Long.toString(redisTtlMs));
+        return stored != null ? (int) Math.max(version, stored) : version;
+    }
+}
\ No newline at end of file
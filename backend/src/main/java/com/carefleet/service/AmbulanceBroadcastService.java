@@ -0,0 +1,196 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceDeltaDto;
+import com.carefleet.dto.AmbulanceDeltaFrameDto;
+import com.carefleet.dto.AmbulanceDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes fleet changes over STOMP. Pings only mark an ambulance dirty; once per tick the
+ * dirty set is diffed against what was last published and each topic receives a single frame
+ * holding only the fields that changed.
+ */
+@Service
+public class AmbulanceBroadcastService {
+
+    public static final String FLEET_TOPIC = "/topic/ambulances";
+    public static final String HOSPITAL_TOPIC = "/topic/hospitals/%s/ambulances";
+
+    // Roughly 10 cm; GPS jitter below this is not worth a frame
+    private static final double COORDINATE_EPSILON = 1e-6;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private AmbulancePositionStore positionStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer publishTimer;
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    // Only touched from the scheduled tick, which never overlaps itself
+    private final Map<String, AmbulanceDto> published = new HashMap<>();
+    private long sequence;
+
+    @PostConstruct
+    public void init() {
+        publishTimer = Timer.builder("tracking.broadcast.publish")
+                .description("Time to diff the dirty ambulances and hand one tick's frames to the broker")
+                .register(meterRegistry);
+    }
+
+    public void markChanged(String ambulanceId) {
+        dirty.add(ambulanceId);
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.broadcast.tick-ms:1000}")
+    public void publishChanges() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        publishTimer.record(this::publishDirty);
+    }
+
+    private void publishDirty() {
+
+        Map<String, List<AmbulanceDeltaDto>> frames = new HashMap<>();
+        Iterator<String> iterator = dirty.iterator();
+        while (iterator.hasNext()) {
+            String ambulanceId = iterator.next();
+            iterator.remove();
+
+            AmbulanceDto current = positionStore.get(ambulanceId);
+            if (current == null) {
+                continue;
+            }
+            AmbulanceDto previous = published.put(ambulanceId, current);
+            AmbulanceDeltaDto delta = diff(previous, current);
+            if (delta.getLatitude() == null && previous != null && previous.getCurrentLocation() != null
+                    && current.getCurrentLocation() != null) {
+                // Keep diffing against the last position actually sent so slow drift is still reported
+                current.getCurrentLocation().setLatitude(previous.getCurrentLocation().getLatitude());
+                current.getCurrentLocation().setLongitude(previous.getCurrentLocation().getLongitude());
+            }
+            if (!delta.hasChanges()) {
+                continue;
+            }
+
+            frames.computeIfAbsent(FLEET_TOPIC, topic -> new ArrayList<>()).add(delta);
+            if (current.getDestinationHospitalId() != null) {
+                boolean newArrival = previous == null
+                        || !current.getDestinationHospitalId().equals(previous.getDestinationHospitalId());
+                // A hospital seeing the ambulance for the first time has no earlier frame to apply a diff to
+                frames.computeIfAbsent(hospitalTopic(current.getDestinationHospitalId()),
+                        topic -> new ArrayList<>()).add(newArrival ? diff(null, current) : delta);
+            }
+            if (previous != null && previous.getDestinationHospitalId() != null
+                    && !previous.getDestinationHospitalId().equals(current.getDestinationHospitalId())) {
+                // Let the hospital the ambulance was heading to see it leave
+                frames.computeIfAbsent(hospitalTopic(previous.getDestinationHospitalId()),
+                        topic -> new ArrayList<>()).add(delta);
+            }
+        }
+
+        if (frames.isEmpty()) {
+            return;
+        }
+        long frameSequence = ++sequence;
+        String timestamp = Instant.now().toString();
+        frames.forEach((topic, changes) ->
+                messagingTemplate.convertAndSend(topic, new AmbulanceDeltaFrameDto(frameSequence, timestamp, changes)));
+    }
+
+    static String hospitalTopic(String hospitalId) {
+        return String.format(HOSPITAL_TOPIC, hospitalId);
+    }
+
+    /**
+     * Folds two frames for the same topic into one, as if only the later tick had been sent
+     * after everything the earlier one reported. Each ambulance keeps the latest value of every
+     * field either frame carried.
+     */
+    static AmbulanceDeltaFrameDto merge(AmbulanceDeltaFrameDto older, AmbulanceDeltaFrameDto newer) {
+        Map<String, AmbulanceDeltaDto> changes = new LinkedHashMap<>();
+        for (AmbulanceDeltaDto change : older.getChanges()) {
+            changes.put(change.getId(), change);
+        }
+        for (AmbulanceDeltaDto change : newer.getChanges()) {
+            changes.merge(change.getId(), change, AmbulanceBroadcastService::overlay);
+        }
+        return new AmbulanceDeltaFrameDto(newer.getSequence(), newer.getTimestamp(), new ArrayList<>(changes.values()));
+    }
+
+    private static AmbulanceDeltaDto overlay(AmbulanceDeltaDto older, AmbulanceDeltaDto newer) {
+        AmbulanceDeltaDto merged = new AmbulanceDeltaDto(newer.getId());
+        merged.setLatitude(newer.getLatitude() != null ? newer.getLatitude() : older.getLatitude());
+        merged.setLongitude(newer.getLongitude() != null ? newer.getLongitude() : older.getLongitude());
+        merged.setSpeed(newer.getSpeed() != null ? newer.getSpeed() : older.getSpeed());
+        merged.setHeading(newer.getHeading() != null ? newer.getHeading() : older.getHeading());
+        merged.setTimestamp(newer.getTimestamp() != null ? newer.getTimestamp() : older.getTimestamp());
+        merged.setStatus(newer.getStatus() != null ? newer.getStatus() : older.getStatus());
+        merged.setDestinationHospitalId(newer.getDestinationHospitalId() != null
+                ? newer.getDestinationHospitalId() : older.getDestinationHospitalId());
+        merged.setPatientOnBoard(newer.getPatientOnBoard() != null ? newer.getPatientOnBoard() : older.getPatientOnBoard());
+        return merged;
+    }
+
+    static AmbulanceDeltaDto diff(AmbulanceDto previous, AmbulanceDto current) {
+        AmbulanceDeltaDto delta = new AmbulanceDeltaDto(current.getId());
+        AmbulanceDto.LocationDto before = previous != null ? previous.getCurrentLocation() : null;
+        AmbulanceDto.LocationDto after = current.getCurrentLocation();
+
+        if (after != null) {
+            if (before == null || Math.abs(before.getLatitude() - after.getLatitude()) > COORDINATE_EPSILON
+                    || Math.abs(before.getLongitude() - after.getLongitude()) > COORDINATE_EPSILON) {
+                delta.setLatitude(after.getLatitude());
+                delta.setLongitude(after.getLongitude());
+            }
+            if (after.getSpeed() != null && (before == null || !after.getSpeed().equals(before.getSpeed()))) {
+                delta.setSpeed(after.getSpeed());
+            }
+            if (after.getHeading() != null && (before == null || !after.getHeading().equals(before.getHeading()))) {
+                delta.setHeading(after.getHeading());
+            }
+        }
+
+        if (previous == null || !Objects.equals(previous.getStatus(), current.getStatus())) {
+            delta.setStatus(current.getStatus());
+        }
+        if (previous == null || previous.isPatientOnBoard() != current.isPatientOnBoard()) {
+            delta.setPatientOnBoard(current.isPatientOnBoard());
+        }
+        if (previous == null
+                ? current.getDestinationHospitalId() != null
+                : !Objects.equals(previous.getDestinationHospitalId(), current.getDestinationHospitalId())) {
+            // An empty string tells subscribers the destination was cleared
+            delta.setDestinationHospitalId(current.getDestinationHospitalId() != null
+                    ? current.getDestinationHospitalId() : "");
+        }
+
+        if (delta.hasChanges() && after != null) {
+            delta.setTimestamp(after.getTimestamp());
+        }
+        return delta;
+    }
+}
\ No newline at end of file
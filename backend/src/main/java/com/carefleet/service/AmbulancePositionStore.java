@@ -0,0 +1,394 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Live position table for the fleet. Positions are kept in primitive arrays split into
+ * fixed-size pages; each slot is guarded by its own sequence counter (a seqlock), so writers
+ * for different ambulances never contend and readers never block writers.
+ *
+ * Every change also takes a stamp from a store-wide counter and writes it on the slot, so
+ * pollers can ask for the ambulances changed since the version they last saw. The version handed
+ * to pollers is a separate watermark that only moves past a stamp once that stamp and every
+ * earlier one have been written; a writer that took its stamp but has not written it yet holds
+ * the watermark back rather than being skipped. Versions are only comparable within one
+ * {@link #epoch()}, which is new for every instance: deltas need a client's polls to keep
+ * reaching the same instance (sticky routing when several run behind a load balancer).
+ */
+@Component
+public class AmbulancePositionStore {
+
+    static final int PAGE_SIZE = 256;
+
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private static final VarHandle SEQ = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CHANGED = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle WRITTEN = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Stamps that may be taken but not yet written at once; a writer further ahead waits
+    static final int STAMPS_IN_FLIGHT = 1 << 14;
+
+    private final ConcurrentHashMap<String, Integer> slotsById = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicReferenceArray<Page> pages;
+    private final int capacity;
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    // Seeded from the clock, so versions keep growing across restarts
+    private final long baseVersion = System.currentTimeMillis() * 1000;
+    private final AtomicLong stamps = new AtomicLong(baseVersion);
+    private final AtomicLong watermark = new AtomicLong(baseVersion);
+    // Stamp s is written once written[s % STAMPS_IN_FLIGHT] == s
+    private final long[] written = new long[STAMPS_IN_FLIGHT];
+
+    public AmbulancePositionStore(@Value("${tracking.store.max-ambulances:16384}") int maxAmbulances) {
+        int pageCount = (maxAmbulances + PAGE_SIZE - 1) / PAGE_SIZE;
+        this.pages = new AtomicReferenceArray<>(pageCount);
+        this.capacity = pageCount * PAGE_SIZE;
+    }
+
+    /**
+     * Records a position. Returns false, leaving the stored position alone, if the ambulance
+     * already has a newer one, as happens when a buffered burst is uploaded after live pings.
+     */
+    public boolean update(String ambulanceId, double latitude, double longitude,
+                          double speed, double heading, long timestamp) {
+        int slot = slotFor(ambulanceId);
+        Page page = pages.get(slot / PAGE_SIZE);
+        int i = slot % PAGE_SIZE;
+
+        long seq = lock(page.seq, i);
+        if (page.timestamp[i] > timestamp) {
+            SEQ.setRelease(page.seq, i, seq + 1);
+            return false;
+        }
+        page.latitude[i] = latitude;
+        page.longitude[i] = longitude;
+        page.speed[i] = speed;
+        page.heading[i] = heading;
+        page.timestamp[i] = timestamp;
+        markChanged(page, i);
+        SEQ.setRelease(page.seq, i, seq + 1);
+        return true;
+    }
+
+    public void updateDescriptor(String ambulanceId, Descriptor descriptor) {
+        int slot = slotFor(ambulanceId);
+        Page page = pages.get(slot / PAGE_SIZE);
+        page.descriptors.set(slot % PAGE_SIZE, descriptor);
+        // Versioned after the write, so a reader that has seen the version sees the descriptor
+        markChanged(page, slot % PAGE_SIZE);
+    }
+
+    /**
+     * The watermark: every change stamped at or below it has been written to its slot. Changes
+     * still being written carry higher stamps, so they show up in a later poll from this version.
+     */
+    public long version() {
+        return watermark.get();
+    }
+
+    /**
+     * Identifies this instance. Versions from another epoch cannot be diffed against, whatever
+     * their value.
+     */
+    public String epoch() {
+        return epoch;
+    }
+
+    /**
+     * Whether {@link #streamChangedSince} can answer for a version of this epoch that a client
+     * holds. Versions from before this process started cannot be diffed against.
+     */
+    public boolean canDiffFrom(long since) {
+        return since >= baseVersion && since <= watermark.get();
+    }
+
+    public Descriptor getDescriptor(String ambulanceId) {
+        Integer slot = slotsById.get(ambulanceId);
+        if (slot == null) {
+            return null;
+        }
+        return pages.get(slot / PAGE_SIZE).descriptors.get(slot % PAGE_SIZE);
+    }
+
+    public boolean contains(String ambulanceId) {
+        return slotsById.containsKey(ambulanceId);
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    public List<AmbulanceDto> snapshot() {
+        return stream().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Reads the fleet lazily, one slot at a time, so callers that write each ambulance straight
+     * out never hold the whole fleet in memory.
+     */
+    public Stream<AmbulanceDto> stream() {
+        return streamChangedSince(Long.MIN_VALUE);
+    }
+
+    /**
+     * The ambulances whose position or descriptor changed after {@code since}. Read
+     * {@link #version()} first: a change is either stamped above that version or already written
+     * when the version was read, so polling from it never misses one, though it may repeat some.
+     */
+    public Stream<AmbulanceDto> streamChangedSince(long since) {
+        int used = Math.min(nextSlot.get(), capacity);
+        return IntStream.range(0, used)
+                .mapToObj(slot -> {
+                    Page page = pages.get(slot / PAGE_SIZE);
+                    int i = slot % PAGE_SIZE;
+                    if (page == null || (long) CHANGED.getVolatile(page.changedAt, i) <= since) {
+                        return null;
+                    }
+                    return toDto(page, i);
+                })
+                .filter(Objects::nonNull);
+    }
+
+    public AmbulanceDto get(String ambulanceId) {
+        Integer slot = slotsById.get(ambulanceId);
+        if (slot == null) {
+            return null;
+        }
+        return toDto(pages.get(slot / PAGE_SIZE), slot % PAGE_SIZE);
+    }
+
+    /**
+     * Reads the last known latitude/longitude into {@code into}. Returns false if the
+     * ambulance is unknown or has not reported a position yet.
+     */
+    public boolean readCoordinates(String ambulanceId, double[] into) {
+        Integer slot = slotsById.get(ambulanceId);
+        if (slot == null) {
+            return false;
+        }
+        Page page = pages.get(slot / PAGE_SIZE);
+        int i = slot % PAGE_SIZE;
+
+        double latitude;
+        double longitude;
+        long before;
+        int spins = 0;
+        do {
+            if (++spins > SPINS_BEFORE_YIELD) {
+                Thread.yield();
+            }
+            before = (long) SEQ.getAcquire(page.seq, i);
+            latitude = page.latitude[i];
+            longitude = page.longitude[i];
+            VarHandle.loadLoadFence();
+        } while ((before & 1) != 0 || before != (long) SEQ.getVolatile(page.seq, i));
+
+        if (before == 0) {
+            return false;
+        }
+        into[0] = latitude;
+        into[1] = longitude;
+        return true;
+    }
+
+    private AmbulanceDto toDto(Page page, int i) {
+        Descriptor descriptor = page.descriptors.get(i);
+        if (descriptor == null) {
+            // Slot reserved but not yet published by the registering thread
+            return null;
+        }
+
+        double latitude;
+        double longitude;
+        double speed;
+        double heading;
+        long timestamp;
+        long before;
+        int spins = 0;
+        do {
+            if (++spins > SPINS_BEFORE_YIELD) {
+                Thread.yield();
+            }
+            before = (long) SEQ.getAcquire(page.seq, i);
+            latitude = page.latitude[i];
+            longitude = page.longitude[i];
+            speed = page.speed[i];
+            heading = page.heading[i];
+            timestamp = page.timestamp[i];
+            VarHandle.loadLoadFence();
+        } while ((before & 1) != 0 || before != (long) SEQ.getVolatile(page.seq, i));
+
+        AmbulanceDto dto = new AmbulanceDto();
+        dto.setId(descriptor.getId());
+        dto.setLicensePlate(descriptor.getLicensePlate());
+        dto.setDriverId(descriptor.getDriverId());
+        dto.setStatus(descriptor.getStatus());
+        dto.setDestinationHospitalId(descriptor.getDestinationHospitalId());
+        dto.setPatientOnBoard(descriptor.isPatientOnBoard());
+        dto.setCreatedAt(descriptor.getCreatedAt());
+
+        if (before != 0) {
+            AmbulanceDto.LocationDto location = new AmbulanceDto.LocationDto();
+            location.setLatitude(latitude);
+            location.setLongitude(longitude);
+            location.setSpeed(Double.isNaN(speed) ? null : speed);
+            location.setHeading(Double.isNaN(heading) ? null : heading);
+            location.setTimestamp(Instant.ofEpochMilli(timestamp).toString());
+            dto.setCurrentLocation(location);
+            dto.setUpdatedAt(location.getTimestamp());
+        } else {
+            dto.setUpdatedAt(descriptor.getCreatedAt());
+        }
+        return dto;
+    }
+
+    private int slotFor(String ambulanceId) {
+        Integer slot = slotsById.get(ambulanceId);
+        if (slot != null) {
+            return slot;
+        }
+        return slotsById.computeIfAbsent(ambulanceId, this::allocate);
+    }
+
+    private int allocate(String ambulanceId) {
+        int slot = nextSlot.getAndIncrement();
+        if (slot >= capacity) {
+            nextSlot.decrementAndGet();
+            throw new IllegalStateException("Ambulance position store is full (capacity " + capacity + ")");
+        }
+        int pageIndex = slot / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        if (page == null) {
+            pages.compareAndSet(pageIndex, null, new Page());
+            page = pages.get(pageIndex);
+        }
+        page.descriptors.compareAndSet(slot % PAGE_SIZE, null, Descriptor.unregistered(ambulanceId));
+        return slot;
+    }
+
+    private void markChanged(Page page, int i) {
+        long stamp = reserveStamp();
+        // A position and a descriptor change may race here; the slot keeps the later stamp
+        long current;
+        do {
+            current = (long) CHANGED.getVolatile(page.changedAt, i);
+            if (current >= stamp) {
+                break;
+            }
+        } while (!CHANGED.compareAndSet(page.changedAt, i, current, stamp));
+        stampWritten(stamp);
+    }
+
+    long reserveStamp() {
+        long stamp = stamps.incrementAndGet();
+        // The stamp's entry in written[] is still needed until the watermark has passed the
+        // stamp that last used it
+        for (int spins = 0; stamp - watermark.get() > STAMPS_IN_FLIGHT; spins++) {
+            if (spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Records that {@code stamp} is on its slot and moves the watermark over every stamp written
+     * so far without a gap. Whichever writer fills a gap moves it past the writers that finished
+     * ahead of it.
+     */
+    void stampWritten(long stamp) {
+        WRITTEN.setVolatile(written, (int) (stamp % STAMPS_IN_FLIGHT), stamp);
+        long mark = watermark.get();
+        while ((long) WRITTEN.getVolatile(written, (int) ((mark + 1) % STAMPS_IN_FLIGHT)) == mark + 1) {
+            if (watermark.compareAndSet(mark, mark + 1)) {
+                mark++;
+            } else {
+                mark = watermark.get();
+            }
+        }
+    }
+
+    private static long lock(long[] seq, int i) {
+        for (int spins = 0; ; spins++) {
+            long current = (long) SEQ.getVolatile(seq, i);
+            if ((current & 1) == 0 && SEQ.compareAndSet(seq, i, current, current + 1)) {
+                return current + 1;
+            }
+            if (spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private static final class Page {
+        final long[] seq = new long[PAGE_SIZE];
+        final double[] latitude = new double[PAGE_SIZE];
+        final double[] longitude = new double[PAGE_SIZE];
+        final double[] speed = new double[PAGE_SIZE];
+        final double[] heading = new double[PAGE_SIZE];
+        final long[] timestamp = new long[PAGE_SIZE];
+        final long[] changedAt = new long[PAGE_SIZE];
+        final AtomicReferenceArray<Descriptor> descriptors = new AtomicReferenceArray<>(PAGE_SIZE);
+    }
+
+    /**
+     * Slow-changing ambulance attributes. Immutable; replaced as a whole on status changes so
+     * the per-ping path never touches it.
+     */
+    public static final class Descriptor {
+        private final String id;
+        private final String licensePlate;
+        private final String driverId;
+        private final String status;
+        private final String destinationHospitalId;
+        private final boolean patientOnBoard;
+        private final String createdAt;
+
+        public Descriptor(String id, String licensePlate, String driverId, String status,
+                          String destinationHospitalId, boolean patientOnBoard, String createdAt) {
+            this.id = id;
+            this.licensePlate = licensePlate;
+            this.driverId = driverId;
+            this.status = status;
+            this.destinationHospitalId = destinationHospitalId;
+            this.patientOnBoard = patientOnBoard;
+            this.createdAt = createdAt;
+        }
+
+        static Descriptor unregistered(String id) {
+            return new Descriptor(id, null, null, "AVAILABLE", null, false, Instant.now().toString());
+        }
+
+        public String getId() { return id; }
+        public String getLicensePlate() { return licensePlate; }
+        public String getDriverId() { return driverId; }
+        public String getStatus() { return status; }
+        public String getDestinationHospitalId() { return destinationHospitalId; }
+        public boolean isPatientOnBoard() { return patientOnBoard; }
+        public String getCreatedAt() { return createdAt; }
+    }
+}
@@ -1,39 +1,236 @@
 package com.carefleet.service;
 
 import com.carefleet.dto.AmbulanceDto;
+import com.carefleet.dto.AmbulanceStatusUpdateDto;
 import com.carefleet.dto.LocationUpdateDto;
+import com.carefleet.dto.NearbyAmbulanceDto;
+import com.carefleet.model.Ambulance;
+import com.carefleet.model.AmbulanceStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 public class AmbulanceService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AmbulanceService.class);
+
+    // Device clocks drift; pings dated further ahead than this are rejected
+    private static final long MAX_CLOCK_SKEW_MS = 60_000;
+
+    @Autowired
+    private AmbulancePositionStore positionStore;
+
+    @Autowired
+    private AmbulanceSpatialIndex spatialIndex;
+
+    @Autowired
+    private LocationWriteBehindService locationWriteBehind;
+
+    @Autowired
+    private AmbulanceBroadcastService broadcastService;
+
+    @Autowired
+    private TrackHistoryService trackHistoryService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer locationUpdateTimer;
+    private Timer ingestTimer;
+
+    @PostConstruct
+    public void init() {
+        locationUpdateTimer = Timer.builder("tracking.location.update")
+                .description("Time to apply one live location ping")
+                .register(meterRegistry);
+        ingestTimer = Timer.builder("tracking.location.ingest")
+                .description("Time to decode and apply one batch of binary location pings")
+                .register(meterRegistry);
+    }
+
     public List<AmbulanceDto> getAllAmbulances() {
-        // Mock data - replace with actual database queries
-        AmbulanceDto.LocationDto location = new AmbulanceDto.LocationDto();
-        location.setLatitude(40.7128);
-        location.setLongitude(-74.0060);
-        location.setTimestamp(LocalDateTime.now().toString());
+        return positionStore.snapshot();
+    }
+
+    public Stream<AmbulanceDto> streamAmbulances() {
+        return positionStore.stream();
+    }
 
-        AmbulanceDto ambulance = new AmbulanceDto();
-        ambulance.setId("1");
-        ambulance.setLicensePlate("AMB-001");
-        ambulance.setDriverId("2");
-        ambulance.setStatus("IN_TRANSIT");
-        ambulance.setCurrentLocation(location);
-        ambulance.setPatientOnBoard(true);
-        ambulance.setCreatedAt(LocalDateTime.now().toString());
-        ambulance.setUpdatedAt(LocalDateTime.now().toString());
+    /**
+     * The fleet version as clients see it: the store's epoch and version, as "epoch.version".
+     */
+    public String getFleetVersion() {
+        return positionStore.epoch() + "." + positionStore.version();
+    }
 
-        return Arrays.asList(ambulance);
+    /**
+     * The ambulances changed after the fleet version {@code since}, or null if it is not one
+     * this instance can diff against and the caller needs the full list.
+     */
+    public List<AmbulanceDto> getAmbulancesChangedSince(String since) {
+        int dot = since.lastIndexOf('.');
+        if (dot < 0 || !since.substring(0, dot).equals(positionStore.epoch())) {
+            return null;
+        }
+        long version;
+        try {
+            version = Long.parseLong(since.substring(dot + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!positionStore.canDiffFrom(version)) {
+            return null;
+        }
+        return positionStore.streamChangedSince(version).toList();
     }
 
     public void updateLocation(String ambulanceId, LocationUpdateDto locationUpdate) {
-        // Mock implementation - replace with actual database update
-        System.out.println("Updating location for ambulance: " + ambulanceId);
-        System.out.println("New location: " + locationUpdate.getLatitude() + ", " + locationUpdate.getLongitude());
+        long start = System.nanoTime();
+        recordPing(ambulanceId,
+                locationUpdate.getLatitude(),
+                locationUpdate.getLongitude(),
+                locationUpdate.getSpeed() != null ? locationUpdate.getSpeed() : Double.NaN,
+                locationUpdate.getHeading() != null ? locationUpdate.getHeading() : Double.NaN,
+                System.currentTimeMillis());
+        locationUpdateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a batch of pings encoded with {@link LocationPingCodec}, each carrying the time it
+     * was taken. Pings with coordinates out of range or timestamps in the future are skipped.
+     * Returns the number accepted.
+     */
+    public int ingestPings(String ambulanceId, ByteBuffer payload) {
+        Timer.Sample sample = Timer.start();
+        long latest = System.currentTimeMillis() + MAX_CLOCK_SKEW_MS;
+        int[] accepted = {0};
+        long[] span = {Long.MAX_VALUE, Long.MIN_VALUE};
+        LocationPingCodec.decode(payload, (timestamp, latitude, longitude, speed, heading) -> {
+            if (timestamp <= latest && timestamp > 0
+                    && latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180) {
+                recordPing(ambulanceId, latitude, longitude, speed, heading, timestamp);
+                accepted[0]++;
+                span[0] = Math.min(span[0], timestamp);
+                span[1] = Math.max(span[1], timestamp);
+            }
+        });
+        if (accepted[0] > 0) {
+            // Buffered uploads can predate the last rollup
+            trackHistoryService.markDirty(span[0], span[1]);
+        }
+        sample.stop(ingestTimer);
+        return accepted[0];
+    }
+
+    private void recordPing(String ambulanceId, double latitude, double longitude,
+                            double speed, double heading, long timestamp) {
+        boolean current = positionStore.update(ambulanceId, latitude, longitude, speed, heading, timestamp);
+        locationWriteBehind.enqueue(ambulanceId, latitude, longitude, speed, heading, timestamp);
+        if (current) {
+            spatialIndex.update(ambulanceId, latitude, longitude);
+            broadcastService.markChanged(ambulanceId);
+        }
+    }
+
+    public AmbulanceDto updateStatus(String ambulanceId, AmbulanceStatusUpdateDto statusUpdate) {
+        AmbulanceStatus status = AmbulanceStatus.valueOf(statusUpdate.getStatus());
+        AmbulancePositionStore.Descriptor current = positionStore.getDescriptor(ambulanceId);
+        boolean patientOnBoard = statusUpdate.getPatientOnBoard() != null
+                ? statusUpdate.getPatientOnBoard()
+                : current != null && current.isPatientOnBoard();
+
+        positionStore.updateDescriptor(ambulanceId, new AmbulancePositionStore.Descriptor(
+                ambulanceId,
+                current != null ? current.getLicensePlate() : null,
+                current != null ? current.getDriverId() : null,
+                status.name(),
+                statusUpdate.getDestinationHospitalId(),
+                patientOnBoard,
+                current != null ? current.getCreatedAt() : Instant.now().toString()));
+
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.upsert(Query.query(where("id").is(ambulanceId)), new Update()
+                .set("status", status.name())
+                .set("destinationHospitalId", statusUpdate.getDestinationHospitalId())
+                .set("patientOnBoard", patientOnBoard)
+                .set("updatedAt", now)
+                .setOnInsert("createdAt", now), Ambulance.class);
+        broadcastService.markChanged(ambulanceId);
+
+        return positionStore.get(ambulanceId);
+    }
+
+    public List<NearbyAmbulanceDto> findNearest(double latitude, double longitude, int limit, double radiusKm,
+                                                String status, Boolean patientOnBoard) {
+        List<AmbulanceSpatialIndex.Match> matches = spatialIndex.nearest(latitude, longitude, limit, radiusKm,
+                descriptor -> (status == null || status.equals(descriptor.getStatus()))
+                        && (patientOnBoard == null || patientOnBoard == descriptor.isPatientOnBoard()));
+
+        List<NearbyAmbulanceDto> result = new ArrayList<>(matches.size());
+        for (AmbulanceSpatialIndex.Match match : matches) {
+            AmbulanceDto ambulance = positionStore.get(match.getAmbulanceId());
+            if (ambulance != null) {
+                result.add(new NearbyAmbulanceDto(ambulance, match.getDistanceKm()));
+            }
+        }
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFleet() {
+        // Restore the last persisted state so status filters and spatial queries work right after a restart
+        try {
+            List<Ambulance> ambulances = mongoTemplate.findAll(Ambulance.class);
+            for (Ambulance ambulance : ambulances) {
+                positionStore.updateDescriptor(ambulance.getId(), new AmbulancePositionStore.Descriptor(
+                        ambulance.getId(),
+                        ambulance.getLicensePlate(),
+                        ambulance.getDriverId(),
+                        ambulance.getStatus(),
+                        ambulance.getDestinationHospitalId(),
+                        ambulance.isPatientOnBoard(),
+                        ambulance.getCreatedAt() != null
+                                ? ambulance.getCreatedAt().toString()
+                                : Instant.now().toString()));
+
+                Ambulance.Location location = ambulance.getCurrentLocation();
+                if (location != null && location.getTimestamp() != null) {
+                    positionStore.update(ambulance.getId(),
+                            location.getLatitude(),
+                            location.getLongitude(),
+                            location.getSpeed() != null ? location.getSpeed() : Double.NaN,
+                            location.getHeading() != null ? location.getHeading() : Double.NaN,
+                            location.getTimestamp().toEpochMilli());
+                    spatialIndex.update(ambulance.getId(), location.getLatitude(), location.getLongitude());
+                }
+            }
+            logger.info("Loaded {} ambulances into the tracking store", ambulances.size());
+        } catch (DataAccessException e) {
+            logger.error("Could not load ambulances from MongoDB; tracking starts empty", e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.carefleet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Uniform lat/lon grid over the fleet. Each ping only touches the index when the ambulance
+ * crosses into a new cell; queries walk rings of cells outwards from the query point and stop
+ * as soon as no unvisited cell can hold a closer match. A radius that would take more than
+ * {@code max-rings} rings (wide radii, or any radius near the poles) scans the occupied cells
+ * instead, which is bounded by the fleet rather than by the area.
+ */
+@Component
+public class AmbulanceSpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final AmbulancePositionStore positionStore;
+    private final double cellSizeDegrees;
+    private final int rows;
+    private final int columns;
+    private final int maxRings;
+
+    private final ConcurrentHashMap<Long, Set<String>> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> cellByAmbulance = new ConcurrentHashMap<>();
+
+    public AmbulanceSpatialIndex(AmbulancePositionStore positionStore,
+                                 @Value("${tracking.spatial-index.cell-size-degrees:0.02}") double cellSizeDegrees,
+                                 @Value("${tracking.spatial-index.max-rings:50}") int maxRings) {
+        this.positionStore = positionStore;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.maxRings = maxRings;
+        this.rows = (int) Math.ceil(180.0 / cellSizeDegrees);
+        this.columns = (int) Math.ceil(360.0 / cellSizeDegrees);
+    }
+
+    public void update(String ambulanceId, double latitude, double longitude) {
+        long cell = cellKey(row(latitude), column(longitude));
+        Long previous = cellByAmbulance.put(ambulanceId, cell);
+        if (previous != null && previous == cell) {
+            return;
+        }
+        cells.computeIfAbsent(cell, key -> ConcurrentHashMap.newKeySet()).add(ambulanceId);
+        if (previous != null) {
+            Set<String> old = cells.get(previous);
+            if (old != null) {
+                old.remove(ambulanceId);
+            }
+        }
+    }
+
+    public void remove(String ambulanceId) {
+        Long previous = cellByAmbulance.remove(ambulanceId);
+        if (previous != null) {
+            Set<String> old = cells.get(previous);
+            if (old != null) {
+                old.remove(ambulanceId);
+            }
+        }
+    }
+
+    public List<Match> nearest(double latitude, double longitude, int limit, double radiusKm,
+                               Predicate<AmbulancePositionStore.Descriptor> filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Match> best = new PriorityQueue<>(limit, Comparator.comparingDouble(Match::getDistanceKm).reversed());
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        int rings = ringsToCover(latitude, radiusKm);
+        double[] coordinates = new double[2];
+        Set<String> seen = new HashSet<>();
+
+        if (rings > maxRings) {
+            for (Long cell : cells.keySet()) {
+                scanCell(cell, latitude, longitude, limit, radiusKm, filter, best, seen, coordinates);
+            }
+        } else {
+            for (int ring = 0; ring <= rings; ring++) {
+                for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    boolean edgeRow = Math.abs(r - centerRow) == ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int c = centerColumn - ring; c <= centerColumn + ring; c += Math.max(step, 1)) {
+                        long cell = cellKey(r, Math.floorMod(c, columns));
+                        scanCell(cell, latitude, longitude, limit, radiusKm, filter, best, seen, coordinates);
+                    }
+                }
+
+                double coveredKm = ring * minCellSpanKm(latitude, ring);
+                if (coveredKm >= radiusKm) {
+                    break;
+                }
+                if (best.size() == limit && best.peek().getDistanceKm() <= coveredKm) {
+                    break;
+                }
+            }
+        }
+
+        List<Match> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Match::getDistanceKm));
+        return result;
+    }
+
+    private void scanCell(long cell, double latitude, double longitude, int limit, double radiusKm,
+                          Predicate<AmbulancePositionStore.Descriptor> filter, PriorityQueue<Match> best,
+                          Set<String> seen, double[] coordinates) {
+        Set<String> members = cells.get(cell);
+        if (members == null || members.isEmpty()) {
+            return;
+        }
+        for (String ambulanceId : members) {
+            Long current = cellByAmbulance.get(ambulanceId);
+            if (current == null || current != cell) {
+                // Left behind by a concurrent move; the ambulance is indexed in its new cell
+                members.remove(ambulanceId);
+                continue;
+            }
+            if (!seen.add(ambulanceId)) {
+                continue;
+            }
+            AmbulancePositionStore.Descriptor descriptor = positionStore.getDescriptor(ambulanceId);
+            if (descriptor == null || !filter.test(descriptor)) {
+                continue;
+            }
+            if (!positionStore.readCoordinates(ambulanceId, coordinates)) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, coordinates[0], coordinates[1]);
+            if (distance > radiusKm) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(new Match(ambulanceId, distance));
+            } else if (distance < best.peek().getDistanceKm()) {
+                best.poll();
+                best.add(new Match(ambulanceId, distance));
+            }
+        }
+    }
+
+    private int ringsToCover(double latitude, double radiusKm) {
+        // Rings needed for the radius at the narrowest cell it can reach, never more than wrap the globe
+        int wrap = (columns - 1) / 2;
+        double edgeLatitude = Math.min(89.9, Math.abs(latitude) + radiusKm / KM_PER_DEGREE + cellSizeDegrees);
+        double cellSpanKm = cellSizeDegrees * KM_PER_DEGREE * Math.cos(Math.toRadians(edgeLatitude));
+        double rings = Math.ceil(radiusKm / cellSpanKm);
+        return rings < wrap ? (int) rings : wrap;
+    }
+
+    private double minCellSpanKm(double latitude, int ring) {
+        // Cells narrow towards the poles, so use the width at the ring's most poleward edge
+        double edgeLatitude = Math.min(89.9, Math.abs(latitude) + (ring + 1) * cellSizeDegrees);
+        return cellSizeDegrees * KM_PER_DEGREE * Math.cos(Math.toRadians(edgeLatitude));
+    }
+
+    private int row(double latitude) {
+        int row = (int) Math.floor((latitude + 90.0) / cellSizeDegrees);
+        return Math.min(Math.max(row, 0), rows - 1);
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / cellSizeDegrees), columns);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    public static final class Match {
+        private final String ambulanceId;
+        private final double distanceKm;
+
+        Match(String ambulanceId, double distanceKm) {
+            this.ambulanceId = ambulanceId;
+            this.distanceKm = distanceKm;
+        }
+
+        public String getAmbulanceId() { return ambulanceId; }
+        public double getDistanceKm() { return distanceKm; }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.carefleet.service;
+
+import com.carefleet.model.Assignment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Open assignments held in memory, one priority queue per staff member ordered by priority and
+ * then scheduled time, plus an index by bed. Each queue is a skip list, so inserting or
+ * completing a task is O(log n) and a staff member's next k tasks are read in O(log n + k)
+ * without locking out writers. Completed and cancelled assignments are dropped, leaving a
+ * tombstone with their version until a reconcile that started after the close has finished, so
+ * an open copy read before the close cannot bring them back.
+ *
+ * Queued assignments must not be mutated; callers hand in a fresh copy for every change.
+ */
+@Component
+public class AssignmentQueue {
+
+    static final Comparator<Assignment> ORDER = Comparator
+            .comparing(Assignment::getPriority, Comparator.reverseOrder())
+            .thenComparing(Assignment::getScheduledTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Assignment::getId);
+
+    private final ConcurrentHashMap<String, Assignment> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, NavigableSet<Assignment>> byStaff = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byBed = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> closed = new ConcurrentHashMap<>();
+
+    /**
+     * Inserts, moves or removes the assignment according to its current state. A copy with a
+     * lower version than the queued one, or an open copy no newer than its close, is ignored.
+     */
+    public void apply(Assignment assignment) {
+        byId.compute(assignment.getId(), (id, queued) -> {
+            if (queued != null && queued.getVersion() > assignment.getVersion()) {
+                return queued;
+            }
+            if (assignment.getStatus().isOpen()) {
+                Long closedVersion = closed.get(id);
+                if (closedVersion != null && closedVersion >= assignment.getVersion()) {
+                    return queued;
+                }
+            }
+            if (queued != null) {
+                unlink(queued);
+            }
+            if (!assignment.getStatus().isOpen()) {
+                closed.merge(id, assignment.getVersion(), Math::max);
+                return null;
+            }
+            link(assignment);
+            return assignment;
+        });
+    }
+
+    public List<Assignment> next(String staffId, int limit) {
+        NavigableSet<Assignment> queue = byStaff.get(staffId);
+        if (queue == null) {
+            return List.of();
+        }
+        List<Assignment> next = new ArrayList<>(Math.min(limit, 32));
+        Iterator<Assignment> it = queue.iterator();
+        while (next.size() < limit && it.hasNext()) {
+            next.add(it.next());
+        }
+        return next;
+    }
+
+    public List<Assignment> forBed(String bedId) {
+        Set<String> ids = byBed.get(bedId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<Assignment> assignments = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Assignment assignment = byId.get(id);
+            if (assignment != null) {
+                assignments.add(assignment);
+            }
+        }
+        assignments.sort(ORDER);
+        return assignments;
+    }
+
+    /**
+     * What {@link #reconcile} needs to know about the queue as it was before the load started.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(new HashSet<>(byId.keySet()), new HashMap<>(closed));
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Brings the queues in line with a fresh load of every open assignment. Assignments queued
+     * before the load started and missing from it were closed elsewhere and are dropped; ones
+     * queued since are kept, as the load may simply not have seen them. Tombstones left before
+     * the load started are cleared, since the load already saw those assignments closed.
+     */
+    public void reconcile(Collection<Assignment> open, Snapshot beforeLoad) {
+        Set<String> loaded = new HashSet<>();
+        for (Assignment assignment : open) {
+            apply(assignment);
+            loaded.add(assignment.getId());
+        }
+        for (String id : beforeLoad.queued) {
+            if (!loaded.contains(id)) {
+                byId.computeIfPresent(id, (key, queued) -> {
+                    unlink(queued);
+                    return null;
+                });
+            }
+        }
+        // A tombstone closed again during the load has a new version and is kept
+        beforeLoad.closed.forEach(closed::remove);
+    }
+
+    public static final class Snapshot {
+        final Set<String> queued;
+        final Map<String, Long> closed;
+
+        Snapshot(Set<String> queued, Map<String, Long> closed) {
+            this.queued = queued;
+            this.closed = closed;
+        }
+    }
+
+    private void link(Assignment assignment) {
+        byStaff.computeIfAbsent(assignment.getStaffId(), id -> new ConcurrentSkipListSet<>(ORDER)).add(assignment);
+        if (assignment.getBedId() != null) {
+            byBed.computeIfAbsent(assignment.getBedId(), id -> ConcurrentHashMap.newKeySet()).add(assignment.getId());
+        }
+    }
+
+    private void unlink(Assignment assignment) {
+        // Empty queues are left in place; removing them would race with a concurrent link
+        NavigableSet<Assignment> queue = byStaff.get(assignment.getStaffId());
+        if (queue != null) {
+            queue.remove(assignment);
+        }
+        if (assignment.getBedId() != null) {
+            Set<String> ids = byBed.get(assignment.getBedId());
+            if (ids != null) {
+                ids.remove(assignment.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AssignmentDto;
+import com.carefleet.dto.AssignmentRequest;
+import com.carefleet.dto.AssignmentStatusUpdateDto;
+import com.carefleet.model.Assignment;
+import com.carefleet.model.AssignmentPriority;
+import com.carefleet.model.AssignmentStatus;
+import com.carefleet.repository.AssignmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+public class AssignmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentService.class);
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AssignmentQueue assignmentQueue;
+
+    /**
+     * The staff member's open assignments, most urgent first. Served from the in-memory queue,
+     * so it costs a skip-list walk of {@code limit} entries rather than a query.
+     */
+    public List<AssignmentDto> getNextAssignments(String staffId, int limit) {
+        return assignmentQueue.next(staffId, limit).stream().map(this::convertToDto).toList();
+    }
+
+    public List<AssignmentDto> getBedAssignments(String bedId) {
+        return assignmentQueue.forBed(bedId).stream().map(this::convertToDto).toList();
+    }
+
+    public AssignmentDto createAssignment(AssignmentRequest request) {
+        if (request.getStaffId() == null || request.getTaskType() == null) {
+            throw new IllegalArgumentException("Staff id and task type are required");
+        }
+        Assignment assignment = new Assignment(
+                request.getStaffId(),
+                request.getTaskType(),
+                request.getPriority() != null ? AssignmentPriority.valueOf(request.getPriority()) : AssignmentPriority.MEDIUM,
+                request.getScheduledTime() != null ? parseTime(request.getScheduledTime()) : Instant.now());
+        assignment.setPatientId(request.getPatientId());
+        assignment.setBedId(request.getBedId());
+        assignment.setDescription(request.getDescription());
+
+        Assignment saved = assignmentRepository.save(assignment);
+        assignmentQueue.apply(saved);
+        return convertToDto(saved);
+    }
+
+    public AssignmentDto updateStatus(String assignmentId, AssignmentStatusUpdateDto statusUpdate) {
+        AssignmentStatus status = AssignmentStatus.valueOf(statusUpdate.getStatus());
+        Update update = new Update()
+                .set("status", status)
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        if (statusUpdate.getNotes() != null) {
+            update.set("notes", statusUpdate.getNotes());
+        }
+        if (status == AssignmentStatus.COMPLETED) {
+            update.set("completedTime", Instant.now());
+        }
+
+        Assignment updated = mongoTemplate.findAndModify(
+                Query.query(where("id").is(assignmentId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Assignment.class);
+        if (updated == null) {
+            throw new RuntimeException("Assignment not found");
+        }
+
+        assignmentQueue.apply(updated);
+        return convertToDto(updated);
+    }
+
+    /**
+     * Reloads every open assignment into the queue. Runs at startup and then periodically, which
+     * also picks up assignments created or closed through other backend instances.
+     */
+    @Scheduled(fixedDelayString = "${assignments.reconcile-ms:30000}")
+    public void reconcileQueue() {
+        try {
+            AssignmentQueue.Snapshot beforeLoad = assignmentQueue.snapshot();
+            List<Assignment> open = mongoTemplate.find(
+                    Query.query(where("status").in(AssignmentStatus.PENDING, AssignmentStatus.IN_PROGRESS)),
+                    Assignment.class);
+            assignmentQueue.reconcile(open, beforeLoad);
+        } catch (DataAccessException e) {
+            logger.error("Could not reload open assignments", e);
+        }
+    }
+
+    private static Instant parseTime(String time) {
+        try {
+            return Instant.parse(time);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid scheduled time: " + time);
+        }
+    }
+
+    private AssignmentDto convertToDto(Assignment assignment) {
+        return new AssignmentDto(
+                assignment.getId(),
+                assignment.getStaffId(),
+                assignment.getPatientId(),
+                assignment.getBedId(),
+                assignment.getTaskType(),
+                assignment.getDescription(),
+                assignment.getPriority().name(),
+                assignment.getStatus().name(),
+                assignment.getScheduledTime() != null ? assignment.getScheduledTime().toString() : null,
+                assignment.getCompletedTime() != null ? assignment.getCompletedTime().toString() : null,
+                assignment.getNotes(),
+                assignment.getCreatedAt() != null ? assignment.getCreatedAt().toString() : null,
+                assignment.getUpdatedAt() != null ? assignment.getUpdatedAt().toString() : null);
+    }
+}
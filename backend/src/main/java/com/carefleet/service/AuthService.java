@@ -5,6 +5,13 @@ import com.carefleet.model.User;
 import com.carefleet.model.UserRole;
 import com.carefleet.repository.UserRepository;
 import com.carefleet.security.JwtTokenProvider;
+import com.carefleet.security.RefreshTokenStore;
+import com.carefleet.security.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -19,6 +26,8 @@ import java.util.UUID;
 @Service
 public class AuthService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -34,6 +43,18 @@ public class AuthService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public String registerUser(RegisterRequest registerRequest) {
         // Check if user already exists
         if (userRepository.existsByEmail(registerRequest.getEmail())) {
@@ -67,6 +88,18 @@ public class AuthService {
     }
 
     public AuthResponse authenticateUser(LoginRequest loginRequest) {
+        Timer.Sample sample = Timer.start();
+        String outcome = "failure";
+        try {
+            AuthResponse response = login(loginRequest);
+            outcome = "success";
+            return response;
+        } finally {
+            sample.stop(meterRegistry.timer("auth.login", "outcome", outcome));
+        }
+    }
+
+    private AuthResponse login(LoginRequest loginRequest) {
         Optional<User> userOpt = userRepository.findByEmail(loginRequest.getEmail());
         if (userOpt.isEmpty()) {
             throw new RuntimeException("Invalid credentials");
@@ -77,15 +110,16 @@ public class AuthService {
             throw new RuntimeException("Please verify your email before logging in");
         }
 
-        Authentication authentication = authenticationManager.authenticate(
+        authenticationManager.authenticate(
             new UsernamePasswordAuthenticationToken(
                 loginRequest.getEmail(),
                 loginRequest.getPassword()
             )
         );
 
-        String accessToken = tokenProvider.generateToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(authentication);
+        // The authenticated principal is the cached copy, which has no names for the token claims
+        String accessToken = tokenProvider.generateAccessToken(user);
+        String refreshToken = openRefreshToken(user);
 
         return new AuthResponse(accessToken, refreshToken, convertToUserDto(user));
     }
@@ -102,6 +136,7 @@ public class AuthService {
         if (!verifyRequest.getOtp().equals(user.getEmailOtp())) {
             user.setOtpAttempts(user.getOtpAttempts() + 1);
             userRepository.save(user);
+            userDetailsService.evict(user);
             throw new RuntimeException("Invalid OTP");
         }
 
@@ -117,6 +152,7 @@ public class AuthService {
         user.setOtpExpiry(null);
         user.setOtpAttempts(0);
         userRepository.save(user);
+        userDetailsService.evict(user);
 
         // Generate tokens
         Authentication authentication = new UsernamePasswordAuthenticationToken(
@@ -124,30 +160,86 @@ public class AuthService {
         );
         
         String accessToken = tokenProvider.generateToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(authentication);
+        String refreshToken = openRefreshToken(user);
 
         return new AuthResponse(accessToken, refreshToken, convertToUserDto(user));
     }
 
     public AuthResponse refreshToken(String refreshToken) {
+        Timer.Sample sample = Timer.start();
+        String outcome = "failure";
+        try {
+            AuthResponse response = rotate(refreshToken);
+            outcome = "success";
+            return response;
+        } finally {
+            sample.stop(meterRegistry.timer("auth.refresh", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Swaps a refresh token for a new pair. The user is rebuilt from the token's claims and the
+     * family checked in Redis, so a refresh does not read MongoDB.
+     */
+    private AuthResponse rotate(String refreshToken) {
         if (!tokenProvider.validateToken(refreshToken)) {
             throw new RuntimeException("Invalid refresh token");
         }
 
-        String userId = tokenProvider.getUserIdFromToken(refreshToken);
-        Optional<User> userOpt = userRepository.findById(userId);
-        
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found");
+        Claims claims = tokenProvider.getClaims(refreshToken);
+        if (!tokenProvider.isRefreshToken(claims)) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        String userId = claims.getSubject();
+        if (!tokenRevocationService.isCurrent(userId, tokenProvider.getTokenVersion(claims))) {
+            throw new RuntimeException("Refresh token has been revoked");
         }
 
-        User user = userOpt.get();
-        String newAccessToken = tokenProvider.generateTokenFromUser(user, 86400000); // 24 hours
-        String newRefreshToken = tokenProvider.generateTokenFromUser(user, 604800000); // 7 days
+        String family = tokenProvider.getRefreshFamily(claims);
+        RefreshTokenStore.RotationResult rotation =
+                refreshTokenStore.rotate(family, claims.getId(), UUID.randomUUID().toString());
+        switch (rotation.getOutcome()) {
+            case REUSED -> {
+                meterRegistry.counter("auth.refresh.reused").increment();
+                logger.warn("Refresh token replayed for user {}, signing out the session", userId);
+                throw new RuntimeException("Refresh token has already been used");
+            }
+            case UNKNOWN -> throw new RuntimeException("Refresh token has been revoked");
+            case ROTATED, RETRIED -> { }
+        }
+
+        User user = tokenProvider.getUserFromClaims(claims);
+        String newAccessToken = tokenProvider.generateAccessToken(user);
+        String newRefreshToken = tokenProvider.generateRefreshToken(user, family, rotation.getTokenId());
 
         return new AuthResponse(newAccessToken, newRefreshToken, convertToUserDto(user));
     }
 
+    /**
+     * Ends the session the refresh token belongs to. Access tokens already issued to it stay
+     * valid until they expire.
+     */
+    public void logout(String refreshToken) {
+        if (!tokenProvider.validateToken(refreshToken)) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        Claims claims = tokenProvider.getClaims(refreshToken);
+        if (!tokenProvider.isRefreshToken(claims)) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        refreshTokenStore.revoke(tokenProvider.getRefreshFamily(claims));
+    }
+
+    public void revokeTokens(String userId) {
+        tokenRevocationService.revokeAll(userId);
+    }
+
+    private String openRefreshToken(User user) {
+        String tokenId = UUID.randomUUID().toString();
+        String family = refreshTokenStore.open(tokenId);
+        return tokenProvider.generateRefreshToken(user, family, tokenId);
+    }
+
     private String generateOTP() {
         return String.format("%06d", (int) (Math.random() * 1000000));
     }
@@ -162,4 +254,4 @@ public class AuthService {
         dto.setEmailVerified(user.isEmailVerified());
         return dto;
     }
-}
\ No newline at end of file
+}
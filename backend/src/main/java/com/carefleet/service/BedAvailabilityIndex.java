@@ -0,0 +1,139 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.BedAvailabilityDto;
+import com.carefleet.model.Bed;
+import com.carefleet.model.BedStatus;
+import com.carefleet.model.BedType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Per-hospital bed counts by type and status, kept up to date as beds change so availability
+ * questions never scan bed documents. Each hospital has one flat counter array indexed by
+ * type and status.
+ *
+ * A {@link #rebuild} records the adjusts made while it reads the database and replays them onto
+ * the recomputed counts before swapping them in, so changes made during a rebuild are not lost.
+ */
+@Component
+public class BedAvailabilityIndex {
+
+    private static final BedType[] TYPES = BedType.values();
+    private static final BedStatus[] STATUSES = BedStatus.values();
+
+    private volatile Map<String, AtomicIntegerArray> counters = new ConcurrentHashMap<>();
+
+    // Adjusts hold the read side, so the swap sees none half done
+    private final ReadWriteLock swap = new ReentrantReadWriteLock();
+    // Adjusts made since the running rebuild started; null when none is running
+    private volatile ConcurrentLinkedQueue<Adjustment> recorded;
+
+    /**
+     * Records a bed changing from {@code before} to {@code after}. Pass null for {@code before}
+     * when the bed was created and for {@code after} when it was deleted.
+     */
+    public void apply(Bed before, Bed after) {
+        if (before != null && after != null && before.getType() == after.getType()
+                && before.getStatus() == after.getStatus()) {
+            return;
+        }
+        if (before != null) {
+            adjust(before.getHospitalId(), before.getType(), before.getStatus(), -1);
+        }
+        if (after != null) {
+            adjust(after.getHospitalId(), after.getType(), after.getStatus(), 1);
+        }
+    }
+
+    public void adjust(String hospitalId, BedType type, BedStatus status, int delta) {
+        int slot = slot(type, status);
+        swap.readLock().lock();
+        try {
+            counters.computeIfAbsent(hospitalId, id -> newCounters()).addAndGet(slot, delta);
+            ConcurrentLinkedQueue<Adjustment> log = recorded;
+            if (log != null) {
+                log.add(new Adjustment(hospitalId, slot, delta));
+            }
+        } finally {
+            swap.readLock().unlock();
+        }
+    }
+
+    public int count(String hospitalId, BedType type, BedStatus status) {
+        AtomicIntegerArray hospital = counters.get(hospitalId);
+        return hospital != null ? hospital.get(slot(type, status)) : 0;
+    }
+
+    public List<BedAvailabilityDto> summary(String hospitalId, BedType type) {
+        AtomicIntegerArray hospital = counters.get(hospitalId);
+        List<BedAvailabilityDto> summary = new ArrayList<>();
+        for (BedType bedType : TYPES) {
+            if (type != null && type != bedType) {
+                continue;
+            }
+            int available = hospital != null ? hospital.get(slot(bedType, BedStatus.AVAILABLE)) : 0;
+            int reserved = hospital != null ? hospital.get(slot(bedType, BedStatus.RESERVED)) : 0;
+            int occupied = hospital != null ? hospital.get(slot(bedType, BedStatus.OCCUPIED)) : 0;
+            int maintenance = hospital != null ? hospital.get(slot(bedType, BedStatus.MAINTENANCE)) : 0;
+            // Skip types the hospital has no beds of, unless the caller asked for that type
+            if (type == null && available + reserved + occupied + maintenance == 0) {
+                continue;
+            }
+            summary.add(new BedAvailabilityDto(hospitalId, bedType.name(), available, reserved, occupied, maintenance));
+        }
+        return summary;
+    }
+
+    /**
+     * Swaps in counts recomputed from the database, correcting any drift from changes made by
+     * other instances. Adjusts made while {@code recompute} runs are replayed onto its result; if
+     * it throws, the current counts are kept.
+     */
+    synchronized void rebuild(Supplier<Map<String, AtomicIntegerArray>> recompute) {
+        recorded = new ConcurrentLinkedQueue<>();
+        try {
+            Map<String, AtomicIntegerArray> rebuilt = new ConcurrentHashMap<>(recompute.get());
+            swap.writeLock().lock();
+            try {
+                for (Adjustment adjustment : recorded) {
+                    rebuilt.computeIfAbsent(adjustment.hospitalId, id -> newCounters())
+                            .addAndGet(adjustment.slot, adjustment.delta);
+                }
+                counters = rebuilt;
+            } finally {
+                swap.writeLock().unlock();
+            }
+        } finally {
+            recorded = null;
+        }
+    }
+
+    static AtomicIntegerArray newCounters() {
+        return new AtomicIntegerArray(TYPES.length * STATUSES.length);
+    }
+
+    static int slot(BedType type, BedStatus status) {
+        return type.ordinal() * STATUSES.length + status.ordinal();
+    }
+
+    private static final class Adjustment {
+        private final String hospitalId;
+        private final int slot;
+        private final int delta;
+
+        Adjustment(String hospitalId, int slot, int delta) {
+            this.hospitalId = hospitalId;
+            this.slot = slot;
+            this.delta = delta;
+        }
+    }
+}
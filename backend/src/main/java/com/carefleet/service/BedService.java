@@ -0,0 +1,334 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.BedAvailabilityDto;
+import com.carefleet.dto.BedDto;
+import com.carefleet.dto.BedRequest;
+import com.carefleet.dto.BedReservationRequest;
+import com.carefleet.model.Bed;
+import com.carefleet.model.BedStatus;
+import com.carefleet.model.BedType;
+import com.carefleet.repository.BedRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+public class BedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BedService.class);
+
+    public static final FieldProjection<BedDto> FIELDS = new FieldProjection<BedDto>()
+            .field("id", "id", BedDto::getId)
+            .field("hospitalId", "hospitalId", BedDto::getHospitalId)
+            .field("bedNumber", "bedNumber", BedDto::getBedNumber)
+            .field("type", "type", BedDto::getType)
+            .field("status", "status", BedDto::getStatus)
+            .field("patientId", "patientId", BedDto::getPatientId)
+            .field("assignedStaffId", "assignedStaffId", BedDto::getAssignedStaffId)
+            .field("reservedBy", "reservedBy", BedDto::getReservedBy)
+            .field("reservedUntil", "reservedUntil", BedDto::getReservedUntil)
+            .field("createdAt", "createdAt", BedDto::getCreatedAt)
+            .field("updatedAt", "updatedAt", BedDto::getUpdatedAt);
+
+    @Autowired
+    private BedRepository bedRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BedAvailabilityIndex availabilityIndex;
+
+    @Value("${listing.stream.batch-size:500}")
+    private int streamBatchSize;
+
+    @Value("${beds.reservation.ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    // Bumped after every bed write made through this instance; keys cached bed listings
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns one page of a hospital's beds ordered by bed number, which is unique per hospital
+     * and backed by the hospital_bed_number index, so each page is a bounded index range scan.
+     */
+    public CursorPage<BedDto> getBeds(String hospitalId, String cursor, int limit, Set<String> fields) {
+        Criteria criteria = where("hospitalId").is(hospitalId);
+        if (cursor != null) {
+            criteria.and("bedNumber").gt(CursorPage.decodeCursor(cursor));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by("bedNumber"))
+                .limit(limit + 1);
+        FIELDS.include(query, fields, "bedNumber");
+
+        List<Bed> beds = mongoTemplate.find(query, Bed.class);
+        boolean hasMore = beds.size() > limit;
+        if (hasMore) {
+            beds = beds.subList(0, limit);
+        }
+        String nextCursor = hasMore ? CursorPage.encodeCursor(beds.get(beds.size() - 1).getBedNumber()) : null;
+        return new CursorPage<>(beds.stream().map(this::convertToDto).toList(), nextCursor);
+    }
+
+    /**
+     * Streams the beds of the given hospitals, or of every hospital when none are given, straight
+     * off a MongoDB cursor in hospital and bed number order. The caller must close the stream,
+     * which releases the cursor.
+     */
+    public Stream<BedDto> streamBeds(List<String> hospitalIds, Set<String> fields) {
+        Query query = hospitalIds == null || hospitalIds.isEmpty()
+                ? new Query()
+                : Query.query(where("hospitalId").in(hospitalIds));
+        query.with(Sort.by("hospitalId", "bedNumber")).cursorBatchSize(streamBatchSize);
+        FIELDS.include(query, fields);
+        return mongoTemplate.stream(query, Bed.class).map(this::convertToDto);
+    }
+
+    public long getVersion(String hospitalId) {
+        AtomicLong version = versions.get(hospitalId);
+        return version != null ? version.get() : 0;
+    }
+
+    public List<BedAvailabilityDto> getAvailability(String hospitalId, String type) {
+        return availabilityIndex.summary(hospitalId, type != null ? BedType.valueOf(type) : null);
+    }
+
+    public BedDto createBed(String hospitalId, BedRequest request) {
+        if (request.getBedNumber() == null || request.getType() == null) {
+            throw new IllegalArgumentException("Bed number and type are required");
+        }
+        if (bedRepository.existsByHospitalIdAndBedNumber(hospitalId, request.getBedNumber())) {
+            throw new DuplicateKeyException("Bed number is already in use");
+        }
+
+        Bed bed = new Bed(hospitalId, request.getBedNumber(), BedType.valueOf(request.getType()));
+        if (request.getStatus() != null) {
+            bed.setStatus(settableStatus(request.getStatus()));
+        }
+        bed.setPatientId(request.getPatientId());
+        bed.setAssignedStaffId(request.getAssignedStaffId());
+
+        Bed saved = bedRepository.save(bed);
+        availabilityIndex.apply(null, saved);
+        bumpVersion(hospitalId);
+        return convertToDto(saved);
+    }
+
+    // A reservation needs a holder and an expiry, which only reserveBed sets
+    private static BedStatus settableStatus(String status) {
+        BedStatus parsed = BedStatus.valueOf(status);
+        if (parsed == BedStatus.RESERVED) {
+            throw new IllegalArgumentException("Beds can only be reserved through the reservation endpoint");
+        }
+        return parsed;
+    }
+
+    public BedDto updateBed(String hospitalId, String bedId, BedRequest request) {
+        BedType type = request.getType() != null ? BedType.valueOf(request.getType()) : null;
+        BedStatus status = request.getStatus() != null ? settableStatus(request.getStatus()) : null;
+
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        if (request.getBedNumber() != null) {
+            update.set("bedNumber", request.getBedNumber());
+        }
+        if (type != null) {
+            update.set("type", type);
+        }
+        if (status != null) {
+            update.set("status", status).unset("reservedBy").unset("reservedUntil");
+        }
+        if (request.getPatientId() != null) {
+            update.set("patientId", request.getPatientId());
+        }
+        if (request.getAssignedStaffId() != null) {
+            update.set("assignedStaffId", request.getAssignedStaffId());
+        }
+
+        // Returns the previous document, so the counters move from exactly the state that was replaced
+        Bed before = mongoTemplate.findAndModify(
+                Query.query(where("id").is(bedId).and("hospitalId").is(hospitalId)),
+                update,
+                FindAndModifyOptions.options().returnNew(false),
+                Bed.class);
+        if (before == null) {
+            throw new BedNotFoundException(bedId);
+        }
+        bumpVersion(hospitalId);
+
+        Bed after = copy(before);
+        if (request.getBedNumber() != null) {
+            after.setBedNumber(request.getBedNumber());
+        }
+        if (type != null) {
+            after.setType(type);
+        }
+        if (status != null) {
+            after.setStatus(status);
+            after.setReservedBy(null);
+            after.setReservedUntil(null);
+        }
+        if (request.getPatientId() != null) {
+            after.setPatientId(request.getPatientId());
+        }
+        if (request.getAssignedStaffId() != null) {
+            after.setAssignedStaffId(request.getAssignedStaffId());
+        }
+        after.setUpdatedAt(LocalDateTime.now());
+
+        availabilityIndex.apply(before, after);
+        return convertToDto(after);
+    }
+
+    /**
+     * Atomically moves one AVAILABLE bed to RESERVED. The status check and the write are a single
+     * findAndModify, so two crews racing for the same bed cannot both win. Returns null when no
+     * matching bed is available.
+     */
+    public BedDto reserveBed(String hospitalId, BedReservationRequest request, String reservedBy) {
+        Criteria criteria = where("hospitalId").is(hospitalId).and("status").is(BedStatus.AVAILABLE);
+        if (request.getBedId() != null) {
+            criteria.and("id").is(request.getBedId());
+        } else if (request.getType() != null) {
+            criteria.and("type").is(BedType.valueOf(request.getType()));
+        } else {
+            throw new IllegalArgumentException("Either a bed id or a bed type is required");
+        }
+
+        Instant reservedUntil = Instant.now().plus(Duration.ofMinutes(reservationTtlMinutes));
+        Bed reserved = mongoTemplate.findAndModify(
+                Query.query(criteria),
+                new Update()
+                        .set("status", BedStatus.RESERVED)
+                        .set("reservedBy", reservedBy)
+                        .set("reservedUntil", reservedUntil)
+                        .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Bed.class);
+        if (reserved == null) {
+            return null;
+        }
+        bumpVersion(hospitalId);
+
+        availabilityIndex.adjust(hospitalId, reserved.getType(), BedStatus.AVAILABLE, -1);
+        availabilityIndex.adjust(hospitalId, reserved.getType(), BedStatus.RESERVED, 1);
+        return convertToDto(reserved);
+    }
+
+    @Scheduled(fixedDelayString = "${beds.reservation.sweep-ms:30000}")
+    public void releaseExpiredReservations() {
+        try {
+            Bed expired;
+            // One compare-and-set per bed, so a reservation confirmed meanwhile is left alone
+            while ((expired = mongoTemplate.findAndModify(
+                    Query.query(where("status").is(BedStatus.RESERVED).and("reservedUntil").lt(Instant.now())),
+                    new Update()
+                            .set("status", BedStatus.AVAILABLE)
+                            .unset("reservedBy")
+                            .unset("reservedUntil")
+                            .set("updatedAt", LocalDateTime.now()),
+                    FindAndModifyOptions.options().returnNew(false),
+                    Bed.class)) != null) {
+                availabilityIndex.adjust(expired.getHospitalId(), expired.getType(), BedStatus.RESERVED, -1);
+                availabilityIndex.adjust(expired.getHospitalId(), expired.getType(), BedStatus.AVAILABLE, 1);
+                bumpVersion(expired.getHospitalId());
+                logger.info("Reservation of bed {} by {} expired", expired.getId(), expired.getReservedBy());
+            }
+        } catch (DataAccessException e) {
+            logger.error("Could not release expired bed reservations", e);
+        }
+    }
+
+    /**
+     * Recomputes the availability counters from MongoDB. Runs at startup and then periodically,
+     * which also corrects for changes made through other backend instances.
+     */
+    @Scheduled(fixedDelayString = "${beds.availability.reconcile-ms:60000}")
+    public void rebuildAvailability() {
+        try {
+            availabilityIndex.rebuild(this::countBeds);
+        } catch (DataAccessException e) {
+            logger.error("Could not rebuild bed availability counters", e);
+        }
+    }
+
+    private Map<String, AtomicIntegerArray> countBeds() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("hospitalId", "type", "status").count().as("count"));
+        Map<String, AtomicIntegerArray> counts = new HashMap<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, Bed.class, Document.class)) {
+            Document key = group.get("_id", Document.class);
+            BedType type = BedType.valueOf(key.getString("type"));
+            BedStatus status = BedStatus.valueOf(key.getString("status"));
+            counts.computeIfAbsent(key.getString("hospitalId"), id -> BedAvailabilityIndex.newCounters())
+                    .addAndGet(BedAvailabilityIndex.slot(type, status), group.getInteger("count"));
+        }
+        return counts;
+    }
+
+    private void bumpVersion(String hospitalId) {
+        versions.computeIfAbsent(hospitalId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static Bed copy(Bed bed) {
+        Bed copy = new Bed(bed.getHospitalId(), bed.getBedNumber(), bed.getType());
+        copy.setId(bed.getId());
+        copy.setStatus(bed.getStatus());
+        copy.setPatientId(bed.getPatientId());
+        copy.setAssignedStaffId(bed.getAssignedStaffId());
+        copy.setReservedBy(bed.getReservedBy());
+        copy.setReservedUntil(bed.getReservedUntil());
+        copy.setCreatedAt(bed.getCreatedAt());
+        copy.setUpdatedAt(bed.getUpdatedAt());
+        return copy;
+    }
+
+    private BedDto convertToDto(Bed bed) {
+        BedDto dto = new BedDto(
+                bed.getId(),
+                bed.getHospitalId(),
+                bed.getBedNumber(),
+                bed.getType() != null ? bed.getType().name() : null,
+                bed.getStatus() != null ? bed.getStatus().name() : null,
+                bed.getPatientId(),
+                bed.getAssignedStaffId(),
+                bed.getCreatedAt() != null ? bed.getCreatedAt().toString() : null,
+                bed.getUpdatedAt() != null ? bed.getUpdatedAt().toString() : null);
+        dto.setReservedBy(bed.getReservedBy());
+        dto.setReservedUntil(bed.getReservedUntil() != null ? bed.getReservedUntil().toString() : null);
+        return dto;
+    }
+
+    public static class BedNotFoundException extends RuntimeException {
+        public BedNotFoundException(String bedId) {
+            super("Bed not found: " + bedId);
+        }
+    }
+}
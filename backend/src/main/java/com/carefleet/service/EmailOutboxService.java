@@ -0,0 +1,310 @@
+package com.carefleet.service;
+
+import com.carefleet.model.EmailOutboxMessage;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Delivers outbound mail from a MongoDB outbox. Enqueueing is a single insert, so request threads
+ * never wait on SMTP. A fixed pool of sender threads claims due messages in batches, sends each
+ * batch over one SMTP connection and retries failures with exponential backoff. Messages survive
+ * restarts, and a sender that dies mid-batch only holds its claim until the lease expires.
+ *
+ * The lease grows with the batch, so a slow SMTP server does not let it run out mid-send. If it
+ * still does and another sender claims the message again, the first sender's outcome is
+ * discarded: every claim carries a token, and a message is only marked sent or failed by the
+ * sender holding the current one.
+ */
+@Service
+public class EmailOutboxService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final JavaMailSender mailSender;
+    private final int senders;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+    private final Duration lease;
+    private final Duration leasePerMessage;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    // Wake-up signals only; the outbox collection is the queue
+    private final Semaphore wakeups = new Semaphore(0);
+
+    private final Timer sendTimer;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private ExecutorService executor;
+
+    public EmailOutboxService(MongoTemplate mongoTemplate,
+                              JavaMailSender mailSender,
+                              MeterRegistry meterRegistry,
+                              @Value("${mail.outbox.senders:2}") int senders,
+                              @Value("${mail.outbox.batch-size:20}") int batchSize,
+                              @Value("${mail.outbox.max-attempts:6}") int maxAttempts,
+                              @Value("${mail.outbox.poll-interval-ms:5000}") long pollIntervalMs,
+                              @Value("${mail.outbox.lease-ms:120000}") long leaseMs,
+                              @Value("${mail.outbox.lease-per-message-ms:10000}") long leasePerMessageMs,
+                              @Value("${mail.outbox.initial-backoff-ms:2000}") long initialBackoffMs,
+                              @Value("${mail.outbox.max-backoff-ms:600000}") long maxBackoffMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.mailSender = mailSender;
+        this.senders = senders;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMs = pollIntervalMs;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.leasePerMessage = Duration.ofMillis(leasePerMessageMs);
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+
+        this.sendTimer = Timer.builder("mail.outbox.send")
+                .description("Time spent delivering one batch of outbox messages over SMTP")
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("mail.outbox.messages", "result", "sent");
+        this.retriedCounter = meterRegistry.counter("mail.outbox.messages", "result", "retried");
+        this.failedCounter = meterRegistry.counter("mail.outbox.messages", "result", "failed");
+    }
+
+    public void enqueue(String to, String subject, String body) {
+        mongoTemplate.insert(new EmailOutboxMessage(to, subject, body));
+        wakeups.release();
+    }
+
+    /**
+     * Claims up to one batch of due messages and delivers it. Returns the number of messages
+     * claimed, so callers can keep going while the outbox has a backlog.
+     */
+    int processBatch() {
+        List<EmailOutboxMessage> batch = claimBatch();
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+        return batch.size();
+    }
+
+    private List<EmailOutboxMessage> claimBatch() {
+        String claimToken = UUID.randomUUID().toString();
+        List<EmailOutboxMessage> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize) {
+            Instant now = Instant.now();
+            // Pending messages that are due, plus claims whose sender never finished
+            Query query = Query.query(where("status").in(EmailOutboxMessage.Status.PENDING, EmailOutboxMessage.Status.SENDING)
+                            .and("nextAttemptAt").lte(now))
+                    .with(Sort.by("nextAttemptAt"));
+            Update update = new Update()
+                    .set("status", EmailOutboxMessage.Status.SENDING)
+                    .set("claimToken", claimToken)
+                    .set("nextAttemptAt", now.plus(lease));
+            EmailOutboxMessage claimed = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().returnNew(true), EmailOutboxMessage.class);
+            if (claimed == null) {
+                break;
+            }
+            batch.add(claimed);
+        }
+        if (batch.size() > 1) {
+            // Restarted once the batch is complete and sized to it, so every message gets the time
+            // the whole batch may take to send
+            mongoTemplate.updateMulti(Query.query(where("claimToken").is(claimToken)),
+                    new Update().set("nextAttemptAt", Instant.now().plus(batchLease(batch.size()))),
+                    EmailOutboxMessage.class);
+        }
+        return batch;
+    }
+
+    Duration batchLease(int messages) {
+        return lease.plus(leasePerMessage.multipliedBy(messages));
+    }
+
+    void deliver(List<EmailOutboxMessage> batch) {
+        SimpleMailMessage[] mails = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < mails.length; i++) {
+            EmailOutboxMessage message = batch.get(i);
+            mails[i] = new SimpleMailMessage();
+            mails[i].setTo(message.getTo());
+            mails[i].setSubject(message.getSubject());
+            mails[i].setText(message.getBody());
+        }
+
+        Map<Object, Exception> failures;
+        Timer.Sample sample = Timer.start();
+        try {
+            // JavaMailSenderImpl sends a whole array over a single transport connection
+            mailSender.send(mails);
+            failures = Map.of();
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? failAll(mails, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            failures = failAll(mails, e);
+        } finally {
+            sample.stop(sendTimer);
+        }
+
+        Instant now = Instant.now();
+        List<String> sentIds = new ArrayList<>();
+        for (int i = 0; i < mails.length; i++) {
+            Exception failure = failures.get(mails[i]);
+            if (failure == null) {
+                sentIds.add(batch.get(i).getId());
+            } else {
+                markFailed(batch.get(i), failure, now);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            UpdateResult result = mongoTemplate.updateMulti(
+                    Query.query(where("id").in(sentIds).and("claimToken").is(batch.get(0).getClaimToken())),
+                    new Update().set("status", EmailOutboxMessage.Status.SENT).set("sentAt", now).set("closedAt", now)
+                            .unset("nextAttemptAt").unset("claimToken").unset("body"),
+                    EmailOutboxMessage.class);
+            sentCounter.increment(sentIds.size());
+            if (result.getMatchedCount() < sentIds.size()) {
+                logger.warn("Lease ran out on {} sent emails; another sender may send them again",
+                        sentIds.size() - result.getMatchedCount());
+            }
+        }
+    }
+
+    private void markFailed(EmailOutboxMessage message, Exception failure, Instant now) {
+        int attempts = message.getAttempts() + 1;
+        Update update = new Update()
+                .set("attempts", attempts)
+                .set("lastError", String.valueOf(failure.getMessage()));
+        if (attempts >= maxAttempts) {
+            update.set("status", EmailOutboxMessage.Status.FAILED).set("closedAt", now)
+                    .unset("nextAttemptAt").unset("claimToken").unset("body");
+            failedCounter.increment();
+            logger.error("Giving up on email {} to {} after {} attempts", message.getId(), message.getTo(), attempts, failure);
+        } else {
+            update.set("status", EmailOutboxMessage.Status.PENDING).set("nextAttemptAt", now.plus(backoff(attempts)))
+                    .unset("claimToken");
+            retriedCounter.increment();
+            logger.warn("Email {} to {} failed (attempt {}), will retry: {}",
+                    message.getId(), message.getTo(), attempts, failure.getMessage());
+        }
+        // Another sender holding a newer claim owns the message now; its outcome wins
+        mongoTemplate.updateFirst(Query.query(where("id").is(message.getId()).and("claimToken").is(message.getClaimToken())),
+                update, EmailOutboxMessage.class);
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static Map<Object, Exception> failAll(SimpleMailMessage[] messages, Exception e) {
+        Map<Object, Exception> failures = new HashMap<>();
+        for (SimpleMailMessage message : messages) {
+            failures.put(message, e);
+        }
+        return failures;
+    }
+
+    private void runSender() {
+        while (running) {
+            try {
+                if (processBatch() < batchSize) {
+                    // Also polls periodically for retries that have come due and for other replicas' backlog
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DataAccessException e) {
+                logger.error("Email outbox unavailable, retrying in {} ms", pollIntervalMs, e);
+                sleepQuietly();
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in email outbox sender", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(senders, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < senders; i++) {
+            executor.execute(this::runSender);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeups.release(senders);
+        executor.shutdown();
+        try {
+            // Whatever is still unsent stays in the outbox for the next start
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        executor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
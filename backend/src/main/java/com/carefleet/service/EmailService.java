@@ -3,9 +3,6 @@ package com.carefleet.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,15 +11,11 @@ public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutbox;
 
-    @Async
     public void sendVerificationEmail(String to, String token, String otp) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject("CareFleet - Email Verification");
-            message.setText(String.format(
+            String text = String.format(
                 "Welcome to CareFleet!\n\n" +
                 "Please verify your email by using the following OTP: %s\n\n" +
                 "This OTP will expire in 15 minutes.\n\n" +
@@ -30,12 +23,13 @@ public class EmailService {
                 "Best regards,\n" +
                 "CareFleet Team",
                 otp
-            ));
-            
-            mailSender.send(message);
-            logger.info("Verification email sent to: {}", to);
+            );
+
+            // Delivery happens on the outbox sender threads
+            emailOutbox.enqueue(to, "CareFleet - Email Verification", text);
+            logger.info("Verification email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Failed to send verification email to: {}", to, e);
+            logger.error("Failed to queue verification email to: {}", to, e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.carefleet.service;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The fields a listing can be narrowed to with {@code ?fields=}. Knows the JSON name, the
+ * MongoDB field behind it and how to read it from the DTO, so a selection can be pushed down
+ * into the query and then applied to the response.
+ */
+public class FieldProjection<T> {
+
+    private final Map<String, String> documentFields = new LinkedHashMap<>();
+    private final Map<String, Function<T, Object>> getters = new LinkedHashMap<>();
+
+    public FieldProjection<T> field(String name, String documentField, Function<T, Object> getter) {
+        documentFields.put(name, documentField);
+        getters.put(name, getter);
+        return this;
+    }
+
+    /**
+     * Parses a comma-separated field list. Returns null when no selection was made, meaning
+     * every field.
+     */
+    public Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!getters.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    public void include(Query query, Set<String> selected, String... alwaysInclude) {
+        if (selected == null) {
+            return;
+        }
+        for (String name : selected) {
+            query.fields().include(documentFields.get(name));
+        }
+        for (String documentField : alwaysInclude) {
+            query.fields().include(documentField);
+        }
+    }
+
+    public List<Map<String, Object>> project(List<T> items, Set<String> selected) {
+        List<Map<String, Object>> projected = new ArrayList<>(items.size());
+        for (T item : items) {
+            projected.add(project(item, selected));
+        }
+        return projected;
+    }
+
+    public Map<String, Object> project(T item, Set<String> selected) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String name : selected) {
+            values.put(name, getters.get(name).apply(item));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,81 @@
+package com.carefleet.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-width binary encoding for a batch of GPS pings, so a vehicle that buffered while out of
+ * coverage can upload the burst in one small message. Big-endian: a one-byte format version,
+ * then one 32-byte record per ping:
+ *
+ * <pre>
+ *   int64   timestamp, epoch milliseconds
+ *   float64 latitude
+ *   float64 longitude
+ *   float32 speed, NaN when unknown
+ *   float32 heading, NaN when unknown
+ * </pre>
+ *
+ * Decoding reads straight into primitives and allocates nothing per ping.
+ */
+public final class LocationPingCodec {
+
+    public static final byte VERSION = 1;
+    public static final int RECORD_SIZE = 32;
+    public static final int MAX_PINGS = 4096;
+
+    @FunctionalInterface
+    public interface PingConsumer {
+        void accept(long timestamp, double latitude, double longitude, double speed, double heading);
+    }
+
+    private LocationPingCodec() {}
+
+    /**
+     * Checks the header and length and returns the number of pings in the payload.
+     */
+    public static int count(ByteBuffer payload) {
+        int remaining = payload.remaining();
+        if (remaining < 1 || payload.get(payload.position()) != VERSION) {
+            throw new IllegalArgumentException("Unsupported ping payload version");
+        }
+        if ((remaining - 1) % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Ping payload is not a whole number of records");
+        }
+        int count = (remaining - 1) / RECORD_SIZE;
+        if (count > MAX_PINGS) {
+            throw new IllegalArgumentException("At most " + MAX_PINGS + " pings per payload");
+        }
+        return count;
+    }
+
+    public static int decode(ByteBuffer payload, PingConsumer consumer) {
+        int count = count(payload);
+        ByteBuffer in = payload.duplicate().order(ByteOrder.BIG_ENDIAN);
+        in.position(in.position() + 1);
+        for (int i = 0; i < count; i++) {
+            long timestamp = in.getLong();
+            double latitude = in.getDouble();
+            double longitude = in.getDouble();
+            double speed = in.getFloat();
+            double heading = in.getFloat();
+            consumer.accept(timestamp, latitude, longitude, speed, heading);
+        }
+        return count;
+    }
+
+    public static ByteBuffer allocate(int pings) {
+        ByteBuffer out = ByteBuffer.allocate(1 + pings * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        out.put(VERSION);
+        return out;
+    }
+
+    public static void write(ByteBuffer out, long timestamp, double latitude, double longitude,
+                             double speed, double heading) {
+        out.putLong(timestamp)
+                .putDouble(latitude)
+                .putDouble(longitude)
+                .putFloat((float) speed)
+                .putFloat((float) heading);
+    }
+}
@@ -0,0 +1,256 @@
+package com.carefleet.service;
+
+import com.carefleet.model.Ambulance;
+import com.carefleet.model.AmbulanceLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Buffers location pings and persists them in bulk. The live position of each ambulance is
+ * coalesced (last write wins) while every ping is appended to the track history; both are
+ * flushed as unordered bulk writes once the batch size is reached or the flush interval elapses.
+ */
+@Service
+public class LocationWriteBehindService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationWriteBehindService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMs;
+
+    private final BlockingQueue<AmbulanceLocation> pendingHistory;
+    private final Map<String, AmbulanceLocation> pendingPositions = new ConcurrentHashMap<>();
+
+    private final Timer flushTimer;
+    private final Counter droppedCounter;
+    private final Counter failedFlushCounter;
+    private final Counter positionsWrittenCounter;
+    private final Counter historyWrittenCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public LocationWriteBehindService(MongoTemplate mongoTemplate,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${tracking.write-behind.batch-size:500}") int batchSize,
+                                      @Value("${tracking.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+                                      @Value("${tracking.write-behind.queue-capacity:50000}") int queueCapacity,
+                                      @Value("${tracking.write-behind.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.pendingHistory = new LinkedBlockingQueue<>(queueCapacity);
+
+        meterRegistry.gauge("tracking.writebehind.queue.depth", pendingHistory, BlockingQueue::size);
+        meterRegistry.gauge("tracking.writebehind.positions.pending", pendingPositions, Map::size);
+        this.flushTimer = Timer.builder("tracking.writebehind.flush")
+                .description("Time spent writing one batch of location pings to MongoDB")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.droppedCounter = meterRegistry.counter("tracking.writebehind.dropped");
+        this.failedFlushCounter = meterRegistry.counter("tracking.writebehind.flush.failures");
+        this.positionsWrittenCounter = meterRegistry.counter("tracking.writebehind.written", "kind", "position");
+        this.historyWrittenCounter = meterRegistry.counter("tracking.writebehind.written", "kind", "history");
+    }
+
+    /**
+     * Queues a ping for the track history and, unless a newer position is already pending, as
+     * the ambulance's stored position. An absent speed or heading is passed as NaN.
+     */
+    public void enqueue(String ambulanceId, double latitude, double longitude,
+                        double speed, double heading, long timestamp) {
+        AmbulanceLocation sample = new AmbulanceLocation(ambulanceId, latitude, longitude,
+                Double.isNaN(speed) ? null : speed, Double.isNaN(heading) ? null : heading,
+                Instant.ofEpochMilli(timestamp));
+        pendingPositions.merge(ambulanceId, sample,
+                (pending, next) -> next.getTimestamp().isBefore(pending.getTimestamp()) ? pending : next);
+
+        boolean accepted;
+        try {
+            // Block the producer briefly when the flusher falls behind rather than growing without bound
+            accepted = pendingHistory.offer(sample, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            droppedCounter.increment();
+        }
+
+        if (pendingHistory.size() >= batchSize) {
+            Thread thread = flusher;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return pendingHistory.size();
+    }
+
+    boolean flush() {
+        List<AmbulanceLocation> history = new ArrayList<>(Math.min(batchSize, pendingHistory.size()));
+        pendingHistory.drainTo(history, batchSize);
+
+        List<AmbulanceLocation> positions = new ArrayList<>();
+        for (Map.Entry<String, AmbulanceLocation> entry : pendingPositions.entrySet()) {
+            // Only claim the value we saw; a newer ping arriving meanwhile stays queued for the next flush
+            if (pendingPositions.remove(entry.getKey(), entry.getValue())) {
+                positions.add(entry.getValue());
+            }
+        }
+
+        if (history.isEmpty() && positions.isEmpty()) {
+            return true;
+        }
+
+        Timer.Sample sample = Timer.start();
+        boolean positionsWritten = false;
+        try {
+            if (!positions.isEmpty()) {
+                writePositions(positions);
+                positionsWrittenCounter.increment(positions.size());
+            }
+            positionsWritten = true;
+            if (!history.isEmpty()) {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AmbulanceLocation.class)
+                        .insert(history)
+                        .execute();
+                historyWrittenCounter.increment(history.size());
+            }
+            return true;
+        } catch (DataAccessException e) {
+            failedFlushCounter.increment();
+            List<AmbulanceLocation> unwritten = history;
+            if (positionsWritten && e instanceof BulkOperationException bulk) {
+                // The insert is unordered, so every sample but the failed ones was written
+                unwritten = bulk.getErrors().stream().map(error -> history.get(error.getIndex())).toList();
+                historyWrittenCounter.increment(history.size() - unwritten.size());
+            }
+            logger.error("Failed to flush {} positions and {} history samples",
+                    positionsWritten ? 0 : positions.size(), unwritten.size(), e);
+            requeue(positionsWritten ? List.of() : positions, unwritten);
+            return false;
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private void writePositions(List<AmbulanceLocation> positions) {
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Ambulance.class);
+        for (AmbulanceLocation position : positions) {
+            Update update = new Update()
+                    .set("currentLocation", new Ambulance.Location(position.getLatitude(), position.getLongitude(),
+                            position.getSpeed(), position.getHeading(), position.getTimestamp()))
+                    .set("updatedAt", now)
+                    .setOnInsert("status", "AVAILABLE")
+                    .setOnInsert("patientOnBoard", false)
+                    .setOnInsert("createdAt", now);
+            ops.upsert(Query.query(where("id").is(position.getAmbulanceId())), update);
+        }
+        ops.execute();
+    }
+
+    private void requeue(List<AmbulanceLocation> positions, List<AmbulanceLocation> history) {
+        for (AmbulanceLocation position : positions) {
+            pendingPositions.putIfAbsent(position.getAmbulanceId(), position);
+        }
+        for (AmbulanceLocation sample : history) {
+            if (!pendingHistory.offer(sample)) {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            if (pendingHistory.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            try {
+                if (!flush()) {
+                    // Back off for one interval so a Mongo outage does not turn into a hot retry loop
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in location write-behind flusher", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "location-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = flusher;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) * 5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+
+        // Drain whatever is still buffered; give up on the first failed batch so shutdown cannot hang
+        while (!pendingHistory.isEmpty() || !pendingPositions.isEmpty()) {
+            if (!flush()) {
+                logger.warn("Discarding {} buffered location samples on shutdown", pendingHistory.size());
+                break;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server so no new pings arrive while draining
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
\ No newline at end of file
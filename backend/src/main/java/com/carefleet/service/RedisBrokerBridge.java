@@ -0,0 +1,236 @@
+package com.carefleet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fans broker messages out across backend instances through Redis pub/sub. Each instance keeps
+ * its own simple broker; a message the application sends to a bridged destination is delivered
+ * locally as usual and also published to Redis, and every other instance replays it into its
+ * own broker. A dashboard connected to any replica therefore sees updates processed on all of
+ * them. Enabled with {@code websocket.broker.mode=redis}.
+ *
+ * Only destinations shared by all subscribers are bridged. Per-session destinations resolved
+ * from /user/ stay on the instance holding the session.
+ *
+ * Publishing happens on a thread of its own behind a bounded queue, so a slow or unreachable
+ * Redis never holds up the thread that sends to the local broker. When the queue is full,
+ * messages are dropped for the other instances only.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "redis")
+public class RedisBrokerBridge implements ChannelInterceptor, MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisBrokerBridge.class);
+
+    // Marks a message replayed from another instance so it is not published again
+    static final String ORIGIN_HEADER = "carefleetOrigin";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The broker channel is built from the WebSocket configuration, which needs this bridge first
+    @Lazy
+    @Autowired
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    @Value("${websocket.broker.redis.channel:carefleet:stomp}")
+    private String channel;
+
+    @Value("${websocket.broker.redis.destinations:/topic/}")
+    private List<String> destinations;
+
+    @Value("${websocket.broker.redis.publish-queue-capacity:1000}")
+    private int publishQueueCapacity;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private RedisMessageListenerContainer listenerContainer;
+    private BlockingQueue<String> pendingPublishes;
+    private Counter droppedCounter;
+    private volatile boolean publishing;
+    private Thread publisher;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        startPublisher();
+        logger.info("Bridging STOMP destinations {} through Redis channel {} as {}", destinations, channel, instanceId);
+    }
+
+    @PreDestroy
+    public void unsubscribe() throws Exception {
+        stopPublisher();
+        listenerContainer.destroy();
+    }
+
+    void startPublisher() {
+        pendingPublishes = new ArrayBlockingQueue<>(publishQueueCapacity);
+        droppedCounter = Counter.builder("websocket.broker.redis.dropped")
+                .description("Messages not published to other instances because the publish queue was full")
+                .register(meterRegistry);
+        publishing = true;
+        publisher = new Thread(this::runPublisher, "redis-broker-bridge");
+        publisher.setDaemon(true);
+        publisher.start();
+    }
+
+    void stopPublisher() {
+        publishing = false;
+        publisher.interrupt();
+    }
+
+    private void runPublisher() {
+        while (publishing) {
+            String envelope;
+            try {
+                envelope = pendingPublishes.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                redisTemplate.convertAndSend(channel, envelope);
+            } catch (Exception e) {
+                logger.warn("Could not publish to other instances on Redis channel {}", channel, e);
+            }
+        }
+    }
+
+    /**
+     * Queues application messages bound for the local broker for publishing. The message itself
+     * always continues to the local broker straight away.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.MESSAGE
+                && !headers.containsKey(ORIGIN_HEADER)
+                && isBridged(destination)
+                && message.getPayload() instanceof byte[] payload) {
+            Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+            Envelope envelope = new Envelope(instanceId, destination,
+                    contentType != null ? contentType.toString() : null, payload);
+            try {
+                if (!pendingPublishes.offer(objectMapper.writeValueAsString(envelope))) {
+                    droppedCounter.increment();
+                }
+            } catch (JsonProcessingException e) {
+                logger.warn("Could not publish {} to other instances", destination, e);
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), Envelope.class);
+        } catch (IOException e) {
+            logger.warn("Ignoring malformed message on Redis channel {}", channel, e);
+            return;
+        }
+        if (instanceId.equals(envelope.getOrigin())) {
+            return;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.getDestination());
+        if (envelope.getContentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.getContentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, envelope.getOrigin());
+        brokerChannel.send(MessageBuilder.createMessage(envelope.getPayload(), accessor.getMessageHeaders()));
+    }
+
+    private boolean isBridged(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : destinations) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public static class Envelope {
+        private String origin;
+        private String destination;
+        private String contentType;
+        private byte[] payload;
+
+        public Envelope() {}
+
+        public Envelope(String origin, String destination, String contentType, byte[] payload) {
+            this.origin = origin;
+            this.destination = destination;
+            this.contentType = contentType;
+            this.payload = payload;
+        }
+
+        public String getOrigin() { return origin; }
+        public void setOrigin(String origin) { this.origin = origin; }
+
+        public String getDestination() { return destination; }
+        public void setDestination(String destination) { this.destination = destination; }
+
+        public String getContentType() { return contentType; }
+        public void setContentType(String contentType) { this.contentType = contentType; }
+
+        public byte[] getPayload() { return payload; }
+        public void setPayload(byte[] payload) { this.payload = payload; }
+    }
+}
@@ -0,0 +1,250 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceDeltaFrameDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a slow WebSocket client from piling up fleet frames. While a frame is still being
+ * written to a session, further frames for its fleet subscriptions are held back and merged
+ * into one, keeping the latest state of each ambulance, and the merged frame is sent once the
+ * write completes. Frames keep being held until the merged frame has been handed to the
+ * session, so a newer frame cannot overtake it. A client on a bad link therefore receives
+ * fewer, fuller frames instead of a growing backlog. Other messages queue in Spring's per-session send buffer, which is bounded by
+ * {@code websocket.outbound.send-buffer-size-limit} and {@code send-time-limit-ms}; a session
+ * exceeding either is closed.
+ */
+@Component
+public class SessionBackpressure implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionBackpressure.class);
+
+    // Marks a held frame on its way back through the channel; not a STOMP header, so never sent
+    static final String RELEASED_HEADER = "carefleetReleased";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Resolved on first use; the channel is built from the configuration that registers this interceptor
+    @Lazy
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    @Value("${websocket.outbound.conflate-destinations:/topic/ambulances,/topic/hospitals/}")
+    private List<String> conflatedDestinations;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private Counter conflatedCounter;
+    private Counter droppedCounter;
+    private Counter terminatedCounter;
+
+    @PostConstruct
+    public void init() {
+        conflatedCounter = meterRegistry.counter("websocket.outbound.conflated");
+        droppedCounter = meterRegistry.counter("websocket.outbound.dropped");
+        terminatedCounter = meterRegistry.counter("websocket.outbound.terminated");
+        meterRegistry.gauge("websocket.outbound.sessions", sessions, Map::size);
+    }
+
+    /**
+     * Wraps the STOMP handler so every session it sees reports when a write starts and ends.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState();
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new TrackedSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                closed(session.getId(), closeStatus);
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[])
+                || !isConflated(SimpMessageHeaderAccessor.getDestination(headers))) {
+            return message;
+        }
+        SessionState state = sessions.get(SimpMessageHeaderAccessor.getSessionId(headers));
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+        if (state == null || subscriptionId == null) {
+            return message;
+        }
+
+        if (isReleased(message)) {
+            return message;
+        }
+        @SuppressWarnings("unchecked")
+        Message<byte[]> frame = (Message<byte[]>) message;
+        synchronized (state) {
+            if (!state.writing && state.releasing == 0) {
+                return message;
+            }
+            Message<byte[]> held = state.held.get(subscriptionId);
+            if (held == null) {
+                state.held.put(subscriptionId, frame);
+                return null;
+            }
+            state.held.put(subscriptionId, conflate(held, frame));
+            state.conflated++;
+        }
+        conflatedCounter.increment();
+        return null;
+    }
+
+    private Message<byte[]> conflate(Message<byte[]> older, Message<byte[]> newer) {
+        try {
+            AmbulanceDeltaFrameDto merged = AmbulanceBroadcastService.merge(
+                    objectMapper.readValue(older.getPayload(), AmbulanceDeltaFrameDto.class),
+                    objectMapper.readValue(newer.getPayload(), AmbulanceDeltaFrameDto.class));
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(merged), newer.getHeaders());
+        } catch (IOException e) {
+            // Not a delta frame; the latest one is all the subscriber needs
+            return newer;
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (!isReleased(message)) {
+            return;
+        }
+        SessionState state = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (state != null) {
+            // Handed to the session; its write ends with released(), which sends what was held meanwhile
+            synchronized (state) {
+                state.releasing--;
+            }
+        }
+    }
+
+    private void released(SessionState state) {
+        List<Message<byte[]>> held;
+        synchronized (state) {
+            state.writing = false;
+            if (state.held.isEmpty()) {
+                return;
+            }
+            held = new ArrayList<>(state.held.values());
+            state.held.clear();
+            state.releasing += held.size();
+        }
+        // Back through the channel, so a frame arriving during the next write is merged again
+        for (Message<byte[]> frame : held) {
+            clientOutboundChannel.send(MessageBuilder.fromMessage(frame).setHeader(RELEASED_HEADER, true).build());
+        }
+    }
+
+    private static boolean isReleased(Message<?> message) {
+        return Boolean.TRUE.equals(message.getHeaders().get(RELEASED_HEADER));
+    }
+
+    private void closed(String sessionId, CloseStatus closeStatus) {
+        SessionState state = sessions.remove(sessionId);
+        if (state == null) {
+            return;
+        }
+        int dropped;
+        long conflated;
+        synchronized (state) {
+            dropped = state.held.size();
+            conflated = state.conflated;
+            state.held.clear();
+        }
+        droppedCounter.increment(dropped);
+        if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) {
+            // Spring closes with this status when the send buffer or time limit is exceeded
+            terminatedCounter.increment();
+            logger.warn("Closed slow WebSocket session {} ({} frames conflated, {} dropped)", sessionId, conflated, dropped);
+        } else if (conflated > 0) {
+            logger.info("WebSocket session {} closed ({} frames conflated, {} dropped)", sessionId, conflated, dropped);
+        }
+    }
+
+    private boolean isConflated(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : conflatedDestinations) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class SessionState {
+        // All guarded by the state's monitor
+        boolean writing;
+        // Held frames sent back through the channel but not yet handed to the session
+        int releasing;
+        final Map<String, Message<byte[]>> held = new LinkedHashMap<>();
+        long conflated;
+    }
+
+    private final class TrackedSession extends WebSocketSessionDecorator {
+
+        private final SessionState state;
+
+        TrackedSession(WebSocketSession session, SessionState state) {
+            super(session);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            synchronized (state) {
+                state.writing = true;
+            }
+            try {
+                super.sendMessage(message);
+            } finally {
+                released(state);
+            }
+        }
+    }
+}
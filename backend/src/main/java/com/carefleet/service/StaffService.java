@@ -0,0 +1,94 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.StaffDto;
+import com.carefleet.model.Staff;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+public class StaffService {
+
+    public static final FieldProjection<StaffDto> FIELDS = new FieldProjection<StaffDto>()
+            .field("id", "id", StaffDto::getId)
+            .field("hospitalId", "hospitalId", StaffDto::getHospitalId)
+            .field("employeeId", "employeeId", StaffDto::getEmployeeId)
+            .field("firstName", "firstName", StaffDto::getFirstName)
+            .field("lastName", "lastName", StaffDto::getLastName)
+            .field("role", "role", StaffDto::getRole)
+            .field("department", "department", StaffDto::getDepartment)
+            .field("shift", "shift", StaffDto::getShift)
+            .field("active", "active", StaffDto::isActive)
+            .field("phoneNumber", "phoneNumber", StaffDto::getPhoneNumber)
+            .field("email", "email", StaffDto::getEmail)
+            .field("createdAt", "createdAt", StaffDto::getCreatedAt)
+            .field("updatedAt", "updatedAt", StaffDto::getUpdatedAt);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${listing.stream.batch-size:500}")
+    private int streamBatchSize;
+
+    /**
+     * Returns one page of a hospital's staff ordered by employee id, which is unique per hospital
+     * and backed by the hospital_employee index, so each page is a bounded index range scan.
+     */
+    public CursorPage<StaffDto> getStaff(String hospitalId, String cursor, int limit, Set<String> fields) {
+        Criteria criteria = where("hospitalId").is(hospitalId);
+        if (cursor != null) {
+            criteria.and("employeeId").gt(CursorPage.decodeCursor(cursor));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by("employeeId"))
+                .limit(limit + 1);
+        FIELDS.include(query, fields, "employeeId");
+
+        List<Staff> staff = mongoTemplate.find(query, Staff.class);
+        boolean hasMore = staff.size() > limit;
+        if (hasMore) {
+            staff = staff.subList(0, limit);
+        }
+        String nextCursor = hasMore ? CursorPage.encodeCursor(staff.get(staff.size() - 1).getEmployeeId()) : null;
+        return new CursorPage<>(staff.stream().map(this::convertToDto).toList(), nextCursor);
+    }
+
+    /**
+     * Streams a hospital's staff straight off a MongoDB cursor in employee id order. The caller
+     * must close the stream, which releases the cursor.
+     */
+    public Stream<StaffDto> streamStaff(String hospitalId, Set<String> fields) {
+        Query query = Query.query(where("hospitalId").is(hospitalId))
+                .with(Sort.by("employeeId"))
+                .cursorBatchSize(streamBatchSize);
+        FIELDS.include(query, fields);
+        return mongoTemplate.stream(query, Staff.class).map(this::convertToDto);
+    }
+
+    private StaffDto convertToDto(Staff staff) {
+        return new StaffDto(
+                staff.getId(),
+                staff.getHospitalId(),
+                staff.getEmployeeId(),
+                staff.getFirstName(),
+                staff.getLastName(),
+                staff.getRole(),
+                staff.getDepartment(),
+                staff.getShift(),
+                staff.isActive(),
+                staff.getPhoneNumber(),
+                staff.getEmail(),
+                staff.getCreatedAt() != null ? staff.getCreatedAt().toString() : null,
+                staff.getUpdatedAt() != null ? staff.getUpdatedAt().toString() : null);
+    }
+}
@@ -0,0 +1,395 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceTrackDto;
+import com.carefleet.dto.TrackPointDto;
+import com.carefleet.model.AmbulanceLocation;
+import com.carefleet.model.AmbulanceTrackBucket;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * GPS track history. Every ping lands in a MongoDB time-series collection, and a periodic rollup
+ * folds it into 10 second and 1 minute tiers with an aggregation that merges into one collection
+ * per tier. Range queries read the coarsest tier that still resolves the requested span, so a
+ * 12 hour track is a few thousand documents rather than every ping.
+ *
+ * The rollup watermark is kept in MongoDB, so a restart carries on where the last run stopped.
+ * Pings uploaded late, such as a batch buffered while a vehicle was out of coverage, are older
+ * than the watermark; {@link #markDirty} queues their span to be rolled up again. Queued spans
+ * are kept as whole minutes and merged on insert, and their number is capped, so a flood of
+ * late batches costs at most one rollup per distinct span.
+ */
+@Service
+public class TrackHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackHistoryService.class);
+
+    static final String RAW_COLLECTION = "ambulance_locations";
+    static final String STATE_COLLECTION = "track_rollup_state";
+    private static final String WATERMARK_ID = "watermark";
+
+    public enum Resolution {
+        RAW("raw", RAW_COLLECTION, Duration.ofSeconds(1)),
+        TEN_SECONDS("10s", "ambulance_tracks_10s", Duration.ofSeconds(10)),
+        ONE_MINUTE("1m", "ambulance_tracks_1m", Duration.ofMinutes(1));
+
+        private final String label;
+        private final String collection;
+        // Bucket size of a tier; for raw pings the nominal reporting interval
+        private final Duration interval;
+
+        Resolution(String label, String collection, Duration interval) {
+            this.label = label;
+            this.collection = collection;
+            this.interval = interval;
+        }
+
+        public String getLabel() { return label; }
+        public String getCollection() { return collection; }
+        public Duration getInterval() { return interval; }
+
+        public static Resolution fromLabel(String label) {
+            for (Resolution resolution : values()) {
+                if (resolution.label.equals(label)) {
+                    return resolution;
+                }
+            }
+            throw new IllegalArgumentException("Unknown resolution: " + label);
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${tracking.history.raw-retention-days:7}")
+    private long rawRetentionDays;
+
+    @Value("${tracking.history.ten-second-retention-days:90}")
+    private long tenSecondRetentionDays;
+
+    @Value("${tracking.history.one-minute-retention-days:730}")
+    private long oneMinuteRetentionDays;
+
+    @Value("${tracking.history.max-points:5000}")
+    private int maxPoints;
+
+    // Leaves pings still sitting in the write-behind buffer out of the rollup window
+    @Value("${tracking.history.rollup.delay-ms:5000}")
+    private long rollupDelayMs;
+
+    // Buckets this far behind the last rollup are recomputed, which picks up late writes
+    @Value("${tracking.history.rollup.overlap-ms:120000}")
+    private long rollupOverlapMs;
+
+    @Value("${tracking.history.rollup.lookback-ms:3600000}")
+    private long rollupLookbackMs;
+
+    // Past this many disjoint spans, a new one is merged into its nearest neighbour
+    @Value("${tracking.history.rollup.max-dirty-windows:1000}")
+    private int maxDirtyWindows;
+
+    // Everything before this instant has been rolled up into both tiers
+    private volatile Instant rolledUpTo;
+
+    // Disjoint spans of late pings still to be rolled up again, by start; lost on restart, like the
+    // write-behind buffer. Guarded by itself.
+    private final TreeMap<Long, DirtyWindow> dirtyWindows = new TreeMap<>();
+
+    @PostConstruct
+    public void createCollections() {
+        try {
+            if (!mongoTemplate.collectionExists(RAW_COLLECTION)) {
+                mongoTemplate.executeCommand(new Document("create", RAW_COLLECTION)
+                        .append("timeseries", new Document("timeField", "timestamp")
+                                .append("metaField", "ambulanceId")
+                                .append("granularity", "seconds"))
+                        .append("expireAfterSeconds", Duration.ofDays(rawRetentionDays).toSeconds()));
+            }
+            mongoTemplate.indexOps(RAW_COLLECTION).ensureIndex(new Index()
+                    .on("ambulanceId", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC).named("ambulance_timestamp"));
+            createTierIndexes(Resolution.TEN_SECONDS, tenSecondRetentionDays);
+            createTierIndexes(Resolution.ONE_MINUTE, oneMinuteRetentionDays);
+        } catch (DataAccessException e) {
+            logger.error("Could not prepare the track history collections", e);
+        }
+    }
+
+    private void createTierIndexes(Resolution tier, long retentionDays) {
+        mongoTemplate.indexOps(tier.getCollection()).ensureIndex(new Index()
+                .on("ambulanceId", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC).named("ambulance_timestamp"));
+        mongoTemplate.indexOps(tier.getCollection()).ensureIndex(new Index()
+                .on("timestamp", Sort.Direction.ASC).named("timestamp_ttl").expire(Duration.ofDays(retentionDays)));
+    }
+
+    public AmbulanceTrackDto getTrack(String ambulanceId, Instant from, Instant to, Resolution resolution) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Resolution chosen = resolution != null ? resolution : resolutionFor(Duration.between(from, to));
+        Query query = Query.query(where("ambulanceId").is(ambulanceId).and("timestamp").gte(from).lt(to))
+                .with(Sort.by("timestamp"))
+                .limit(maxPoints);
+
+        List<TrackPointDto> points;
+        if (chosen == Resolution.RAW) {
+            points = mongoTemplate.find(query, AmbulanceLocation.class, RAW_COLLECTION).stream()
+                    .map(ping -> new TrackPointDto(ping.getTimestamp().toString(), ping.getLatitude(),
+                            ping.getLongitude(), ping.getSpeed(), ping.getHeading(), null, null))
+                    .toList();
+        } else {
+            points = mongoTemplate.find(query, AmbulanceTrackBucket.class, chosen.getCollection()).stream()
+                    .map(bucket -> new TrackPointDto(bucket.getTimestamp().toString(), bucket.getLatitude(),
+                            bucket.getLongitude(), bucket.getSpeed(), bucket.getHeading(), bucket.getMaxSpeed(),
+                            bucket.getSamples()))
+                    .toList();
+        }
+        return new AmbulanceTrackDto(ambulanceId, chosen.getLabel(), from.toString(), to.toString(), points);
+    }
+
+    /**
+     * The finest resolution at which the span fits in {@code maxPoints} points.
+     */
+    Resolution resolutionFor(Duration span) {
+        for (Resolution resolution : Resolution.values()) {
+            if (span.dividedBy(resolution.getInterval()) <= maxPoints) {
+                return resolution;
+            }
+        }
+        return Resolution.ONE_MINUTE;
+    }
+
+    /**
+     * Recomputes the 10 second buckets from raw pings and then the minute buckets from those.
+     * Buckets are replaced whole, so overlapping runs and several instances rolling up the same
+     * window are harmless.
+     */
+    @Scheduled(fixedDelayString = "${tracking.history.rollup.interval-ms:10000}")
+    public void rollup() {
+        Instant now = Instant.now();
+        try {
+            if (rolledUpTo == null) {
+                rolledUpTo = readWatermark();
+            }
+        } catch (DataAccessException e) {
+            logger.error("Could not read the track rollup watermark", e);
+            return;
+        }
+        Instant start = truncate(rolledUpTo != null
+                ? rolledUpTo.minusMillis(rollupOverlapMs)
+                : now.minusMillis(rollupLookbackMs), Resolution.ONE_MINUTE);
+        Instant end = truncate(now.minusMillis(rollupDelayMs), Resolution.TEN_SECONDS);
+        Instant minuteEnd = truncate(end, Resolution.ONE_MINUTE);
+        if (start.isBefore(minuteEnd)) {
+            try {
+                rollup(start, end, minuteEnd);
+                mongoTemplate.upsert(Query.query(where("_id").is(WATERMARK_ID)),
+                        new Update().max("rolledUpTo", Date.from(minuteEnd)), STATE_COLLECTION);
+                rolledUpTo = minuteEnd;
+            } catch (DataAccessException e) {
+                logger.error("Could not roll up track history from {} to {}", start, end, e);
+                return;
+            }
+        }
+        rollupDirtyWindows(now);
+    }
+
+    /**
+     * Queues the span of an accepted batch of pings to be rolled up again if it reaches behind
+     * what the next regular run recomputes anyway.
+     */
+    public void markDirty(long fromMs, long toMs) {
+        Instant watermark = rolledUpTo;
+        if (watermark != null && fromMs >= watermark.toEpochMilli() - rollupOverlapMs) {
+            return;
+        }
+        long start = truncate(Instant.ofEpochMilli(fromMs), Resolution.ONE_MINUTE).toEpochMilli();
+        long end = truncate(Instant.ofEpochMilli(toMs), Resolution.ONE_MINUTE).toEpochMilli()
+                + Resolution.ONE_MINUTE.getInterval().toMillis();
+        queueDirty(new DirtyWindow(start, end, System.currentTimeMillis()));
+    }
+
+    int dirtyWindowCount() {
+        synchronized (dirtyWindows) {
+            return dirtyWindows.size();
+        }
+    }
+
+    private void queueDirty(DirtyWindow window) {
+        long start = window.fromMs;
+        long end = window.toMs;
+        long markedAt = window.markedAt;
+        synchronized (dirtyWindows) {
+            // Absorb every queued span this one overlaps or touches
+            Map.Entry<Long, DirtyWindow> before = dirtyWindows.floorEntry(start);
+            if (before != null && before.getValue().toMs >= start) {
+                start = before.getKey();
+            }
+            Map.Entry<Long, DirtyWindow> overlapping;
+            while ((overlapping = dirtyWindows.ceilingEntry(start)) != null && overlapping.getKey() <= end) {
+                end = Math.max(end, overlapping.getValue().toMs);
+                markedAt = Math.max(markedAt, overlapping.getValue().markedAt);
+                dirtyWindows.remove(overlapping.getKey());
+            }
+            if (dirtyWindows.size() >= maxDirtyWindows) {
+                // Full: widen into the closest neighbour rather than grow
+                Map.Entry<Long, DirtyWindow> lower = dirtyWindows.lowerEntry(start);
+                Map.Entry<Long, DirtyWindow> higher = dirtyWindows.higherEntry(start);
+                if (lower != null && (higher == null || start - lower.getValue().toMs <= higher.getKey() - end)) {
+                    start = lower.getKey();
+                    markedAt = Math.max(markedAt, lower.getValue().markedAt);
+                    dirtyWindows.remove(lower.getKey());
+                } else if (higher != null) {
+                    end = higher.getValue().toMs;
+                    markedAt = Math.max(markedAt, higher.getValue().markedAt);
+                    dirtyWindows.remove(higher.getKey());
+                }
+            }
+            dirtyWindows.put(start, new DirtyWindow(start, end, markedAt));
+        }
+    }
+
+    private void rollupDirtyWindows(Instant now) {
+        // Windows marked within the delay may still have pings in the write-behind buffer
+        long readyBefore = now.toEpochMilli() - rollupDelayMs;
+        // Spans the regular run recomputes anyway, such as those marked before the watermark was known
+        Instant watermark = rolledUpTo;
+        long coveredFrom = watermark != null ? watermark.toEpochMilli() - rollupOverlapMs : Long.MAX_VALUE;
+        List<DirtyWindow> ready = new ArrayList<>();
+        synchronized (dirtyWindows) {
+            for (Iterator<DirtyWindow> it = dirtyWindows.values().iterator(); it.hasNext(); ) {
+                DirtyWindow window = it.next();
+                if (window.fromMs >= coveredFrom) {
+                    it.remove();
+                } else if (window.markedAt <= readyBefore) {
+                    ready.add(window);
+                    it.remove();
+                }
+            }
+        }
+
+        // Queued spans are whole minutes and never overlap, so each minute bucket is rebuilt at most once
+        for (int next = 0; next < ready.size(); next++) {
+            Instant start = Instant.ofEpochMilli(ready.get(next).fromMs);
+            Instant end = Instant.ofEpochMilli(ready.get(next).toMs);
+            try {
+                rollup(start, end, end);
+            } catch (DataAccessException e) {
+                logger.error("Could not roll up late track history from {} to {}", start, end, e);
+                ready.subList(next, ready.size()).forEach(this::queueDirty);
+                return;
+            }
+        }
+    }
+
+    private void rollup(Instant start, Instant tenSecondEnd, Instant minuteEnd) {
+        merge(RAW_COLLECTION, rollupPipeline(Resolution.TEN_SECONDS, start, tenSecondEnd, false));
+        merge(Resolution.TEN_SECONDS.getCollection(), rollupPipeline(Resolution.ONE_MINUTE, start, minuteEnd, true));
+    }
+
+    private Instant readWatermark() {
+        Document state = mongoTemplate.findById(WATERMARK_ID, Document.class, STATE_COLLECTION);
+        Date watermark = state != null ? state.getDate("rolledUpTo") : null;
+        return watermark != null ? watermark.toInstant() : null;
+    }
+
+    private void merge(String source, List<Document> pipeline) {
+        mongoTemplate.execute(source, collection -> {
+            collection.aggregate(pipeline).allowDiskUse(true).toCollection();
+            return null;
+        });
+    }
+
+    /**
+     * Groups points in [start, end) into buckets of the target tier and merges them into the
+     * tier's collection. The source is either raw pings or the next finer tier.
+     */
+    static List<Document> rollupPipeline(Resolution target, Instant start, Instant end, boolean fromBuckets) {
+        Document match = new Document("timestamp", new Document("$gte", Date.from(start)).append("$lt", Date.from(end)));
+        Document sort = new Document("ambulanceId", 1).append("timestamp", 1);
+        Document bucketStart = new Document("$dateTrunc", new Document("date", "$timestamp")
+                .append("unit", "second")
+                .append("binSize", target.getInterval().toSeconds()));
+
+        // Sorted input, so $last is the last position reported within the bucket
+        Document group = new Document("_id", new Document("ambulanceId", "$ambulanceId").append("timestamp", bucketStart))
+                .append("latitude", new Document("$last", "$latitude"))
+                .append("longitude", new Document("$last", "$longitude"))
+                .append("heading", new Document("$last", "$heading"))
+                .append("maxSpeed", new Document("$max", fromBuckets ? "$maxSpeed" : "$speed"))
+                .append("samples", new Document("$sum", fromBuckets ? "$samples" : 1))
+                .append("speedSum", new Document("$sum", fromBuckets ? "$speedSum" : "$speed"))
+                .append("speedSamples", new Document("$sum", fromBuckets
+                        ? "$speedSamples"
+                        : new Document("$cond", Arrays.asList(new Document("$isNumber", "$speed"), 1, 0))));
+
+        Document project = new Document("_id", new Document("$concat", Arrays.asList(
+                        "$_id.ambulanceId", ":", new Document("$toString", new Document("$toLong", "$_id.timestamp")))))
+                .append("ambulanceId", "$_id.ambulanceId")
+                .append("timestamp", "$_id.timestamp")
+                .append("latitude", 1)
+                .append("longitude", 1)
+                .append("heading", 1)
+                .append("maxSpeed", 1)
+                .append("samples", 1)
+                .append("speedSum", 1)
+                .append("speedSamples", 1)
+                .append("speed", new Document("$cond", Arrays.asList(
+                        new Document("$gt", Arrays.asList("$speedSamples", 0)),
+                        new Document("$divide", Arrays.asList("$speedSum", "$speedSamples")),
+                        null)));
+
+        Document merge = new Document("into", target.getCollection())
+                .append("on", "_id")
+                .append("whenMatched", "replace")
+                .append("whenNotMatched", "insert");
+
+        return List.of(
+                new Document("$match", match),
+                new Document("$sort", sort),
+                new Document("$group", group),
+                new Document("$project", project),
+                new Document("$merge", merge));
+    }
+
+    static Instant truncate(Instant instant, Resolution tier) {
+        long intervalMs = tier.getInterval().toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(instant.toEpochMilli(), intervalMs) * intervalMs);
+    }
+
+    private static final class DirtyWindow {
+        // Minute-aligned, end exclusive
+        private final long fromMs;
+        private final long toMs;
+        private final long markedAt;
+
+        DirtyWindow(long fromMs, long toMs, long markedAt) {
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+            this.markedAt = markedAt;
+        }
+    }
+}
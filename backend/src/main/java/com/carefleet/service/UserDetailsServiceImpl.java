@@ -1,29 +1,284 @@
 package com.carefleet.service;
 
 import com.carefleet.model.User;
+import com.carefleet.model.UserRole;
 import com.carefleet.repository.UserRepository;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Loads users through two cache tiers: a small in-process cache in front of Redis, which is
+ * shared by every replica, with MongoDB as the source of truth. Anything that changes a stored
+ * user must call {@link #evict(User)} after saving it.
+ *
+ * Both tiers hold only what authentication needs (see {@link CachedUser}), so the users they
+ * return have no names, OTPs or verification tokens. Load from the repository for those.
+ */
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
+
+    static final String ID_KEY_PREFIX = "carefleet:user:id:";
+    static final String EMAIL_KEY_PREFIX = "carefleet:user:email:";
+
+    private static final ObjectMapper USER_MAPPER = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .visibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .visibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.cache.local.max-size:10000}")
+    private long localMaxSize;
+
+    // Short, since another replica's change only reaches this tier once the entry expires
+    @Value("${user.cache.local.ttl-ms:10000}")
+    private long localTtlMs;
+
+    @Value("${user.cache.redis.ttl-ms:900000}")
+    private long redisTtlMs;
+
+    private Cache<String, User> usersById;
+    private Cache<String, User> usersByEmail;
+    private Timer databaseLoads;
+    private Timer lookupsById;
+    private Timer lookupsByEmail;
+
+    @PostConstruct
+    public void init() {
+        usersById = newLocalCache();
+        usersByEmail = newLocalCache();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, usersByEmail, "users.byEmail");
+        databaseLoads = Timer.builder("users.cache.database.load")
+                .description("Time spent loading users from MongoDB after missing both cache tiers")
+                .register(meterRegistry);
+        lookupsById = lookupTimer("id");
+        lookupsByEmail = lookupTimer("email");
+    }
+
+    private Timer lookupTimer(String key) {
+        return Timer.builder("users.lookup")
+                .description("Time to resolve a user through the cache tiers")
+                .tag("by", key)
+                .register(meterRegistry);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        User user = lookupsByEmail.record(() -> usersByEmail.get(email, this::loadByEmail));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
+        }
         return user;
     }
 
     public UserDetails loadUserById(String id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
+        User user = lookupsById.record(() -> usersById.get(id, this::loadById));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with id: " + id);
+        }
         return user;
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores a re-hashed password after a login with a hash weaker than the current strength.
+     * Only the password field is written, and only while it still holds the hash that was
+     * checked, so a password changed in the meantime is not overwritten with the old one.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = (User) userDetails;
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(where("id").is(user.getId()).and("password").is(user.getPassword())),
+                new Update().set("password", newPassword), User.class);
+        if (result.getMatchedCount() == 0) {
+            return user;
+        }
+        evict(user);
+        user.setPassword(newPassword);
+        return user;
+    }
+
+    /**
+     * Drops the user from both tiers on this replica and from Redis. Other replicas keep their
+     * local copy until it expires.
+     */
+    public void evict(User user) {
+        if (user.getId() != null) {
+            usersById.invalidate(user.getId());
+        }
+        if (user.getEmail() != null) {
+            usersByEmail.invalidate(user.getEmail());
+        }
+        try {
+            redisTemplate.delete(List.of(ID_KEY_PREFIX + user.getId(), EMAIL_KEY_PREFIX + user.getEmail()));
+        } catch (DataAccessException e) {
+            logger.warn("Could not evict user {} from Redis", user.getId(), e);
+        }
+    }
+
+    private Cache<String, User> newLocalCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofMillis(localTtlMs))
+                .recordStats()
+                .build();
+    }
+
+    private User loadById(String id) {
+        CachedUser cached = readRedis(ID_KEY_PREFIX + id);
+        if (cached == null) {
+            cached = CachedUser.of(databaseLoads.record(() -> userRepository.findById(id).orElse(null)));
+            writeRedis(cached);
+        }
+        return cached != null ? cached.toUser() : null;
+    }
+
+    private User loadByEmail(String email) {
+        CachedUser cached = null;
+        String id = readRedisValue(EMAIL_KEY_PREFIX + email);
+        if (id != null) {
+            cached = readRedis(ID_KEY_PREFIX + id);
+        }
+        if (cached == null) {
+            cached = CachedUser.of(databaseLoads.record(() -> userRepository.findByEmail(email).orElse(null)));
+            writeRedis(cached);
+        }
+        return cached != null ? cached.toUser() : null;
+    }
+
+    private CachedUser readRedis(String key) {
+        String json = readRedisValue(key);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return USER_MAPPER.readValue(json, CachedUser.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Discarding unreadable cached user under {}", key);
+            return null;
+        }
+    }
+
+    private String readRedisValue(String key) {
+        try {
+            String value = redisTemplate.opsForValue().get(key);
+            meterRegistry.counter("users.cache.redis", "result", value != null ? "hit" : "miss").increment();
+            return value;
+        } catch (DataAccessException e) {
+            meterRegistry.counter("users.cache.redis", "result", "error").increment();
+            logger.debug("Redis unavailable while loading {}", key);
+            return null;
+        }
+    }
+
+    private void writeRedis(CachedUser user) {
+        if (user == null) {
+            return;
+        }
+        try {
+            Duration ttl = Duration.ofMillis(redisTtlMs);
+            redisTemplate.opsForValue().set(ID_KEY_PREFIX + user.id, USER_MAPPER.writeValueAsString(user), ttl);
+            redisTemplate.opsForValue().set(EMAIL_KEY_PREFIX + user.email, user.id, ttl);
+        } catch (JsonProcessingException | DataAccessException e) {
+            logger.debug("Could not cache user {} in Redis", user.id);
+        }
+    }
+
+    /**
+     * The cached form of a user: identity, credentials, role and the flags checked at login.
+     */
+    static final class CachedUser {
+        private String id;
+        private String email;
+        private String password;
+        private UserRole role;
+        private String hospitalId;
+        private boolean emailVerified;
+        private boolean enabled;
+        private boolean accountNonExpired;
+        private boolean accountNonLocked;
+        private boolean credentialsNonExpired;
+        private int tokenVersion;
+
+        static CachedUser of(User user) {
+            if (user == null) {
+                return null;
+            }
+            CachedUser cached = new CachedUser();
+            cached.id = user.getId();
+            cached.email = user.getEmail();
+            cached.password = user.getPassword();
+            cached.role = user.getRole();
+            cached.hospitalId = user.getHospitalId();
+            cached.emailVerified = user.isEmailVerified();
+            cached.enabled = user.isEnabled();
+            cached.accountNonExpired = user.isAccountNonExpired();
+            cached.accountNonLocked = user.isAccountNonLocked();
+            cached.credentialsNonExpired = user.isCredentialsNonExpired();
+            cached.tokenVersion = user.getTokenVersion();
+            return cached;
+        }
+
+        User toUser() {
+            User user = new User(email, password, null, null, role);
+            user.setId(id);
+            user.setHospitalId(hospitalId);
+            user.setEmailVerified(emailVerified);
+            // isEnabled() already folded in the verified flag
+            user.setEnabled(enabled);
+            user.setAccountNonExpired(accountNonExpired);
+            user.setAccountNonLocked(accountNonLocked);
+            user.setCredentialsNonExpired(credentialsNonExpired);
+            user.setTokenVersion(tokenVersion);
+            return user;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.carefleet.controller;
+
+import com.carefleet.dto.AmbulanceDto;
+import com.carefleet.service.AmbulanceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AmbulanceControllerTest {
+
+    private AmbulanceService ambulanceService;
+    private AmbulanceController controller;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    public void setUp() {
+        ambulanceService = mock(AmbulanceService.class);
+        controller = new AmbulanceController();
+        ReflectionTestUtils.setField(controller, "ambulanceService", ambulanceService);
+
+        ResponseCache responseCache = new ResponseCache();
+        ReflectionTestUtils.setField(responseCache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(responseCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(responseCache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(responseCache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(responseCache, "gzipMinBytes", 2048);
+        responseCache.init();
+        ReflectionTestUtils.setField(controller, "responseCache", responseCache);
+        ReflectionTestUtils.setField(controller, "maxNearestRadiusKm", 500.0);
+        when(ambulanceService.getFleetVersion()).thenReturn("42");
+    }
+
+    @Test
+    public void testUnchangedFleetIsNotModified() {
+        ResponseEntity<?> response = controller.getAmbulances(null, "\"41\", W/\"42\"", null);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("W/\"42\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verify(ambulanceService, never()).getAllAmbulances();
+    }
+
+    @Test
+    public void testSinceReturnsOnlyChanges() {
+        AmbulanceDto changed = new AmbulanceDto();
+        changed.setId("amb-1");
+        when(ambulanceService.getAmbulancesChangedSince("40")).thenReturn(List.of(changed));
+
+        ResponseEntity<?> response = controller.getAmbulances("40", "W/\"40\"", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(changed), response.getBody());
+        assertEquals("42", response.getHeaders().getFirst(AmbulanceController.FLEET_VERSION_HEADER));
+        assertEquals("true", response.getHeaders().getFirst(AmbulanceController.FLEET_DELTA_HEADER));
+        verify(ambulanceService, never()).getAllAmbulances();
+    }
+
+    @Test
+    public void testUnknownVersionFallsBackToFullList() throws Exception {
+        when(ambulanceService.getAmbulancesChangedSince("7")).thenReturn(null);
+        when(ambulanceService.getAllAmbulances()).thenReturn(List.of(new AmbulanceDto(), new AmbulanceDto()));
+
+        ResponseEntity<?> response = controller.getAmbulances("7", null, null);
+
+        assertEquals(2, objectMapper.readTree((byte[]) response.getBody()).size());
+        assertEquals("false", response.getHeaders().getFirst(AmbulanceController.FLEET_DELTA_HEADER));
+        assertEquals("W/\"42\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    public void testFullListIsEncodedOncePerVersion() {
+        when(ambulanceService.getAllAmbulances()).thenReturn(List.of(new AmbulanceDto()));
+
+        ResponseEntity<?> first = controller.getAmbulances(null, null, null);
+        ResponseEntity<?> second = controller.getAmbulances(null, "W/\"41\"", null);
+        when(ambulanceService.getFleetVersion()).thenReturn("43");
+        ResponseEntity<?> third = controller.getAmbulances(null, null, null);
+
+        assertSame(first.getBody(), second.getBody());
+        assertEquals("W/\"43\"", third.getHeaders().getETag());
+        verify(ambulanceService, times(2)).getAllAmbulances();
+    }
+
+    @Test
+    public void testWeakComparison() {
+        assertTrue(AmbulanceController.matches("\"42\"", "W/\"42\""));
+        assertTrue(AmbulanceController.matches("*", "W/\"42\""));
+        assertFalse(AmbulanceController.matches("W/\"4\"", "W/\"42\""));
+        assertFalse(AmbulanceController.matches(null, "W/\"42\""));
+    }
+
+    @Test
+    public void testNearestRejectsRadiusOverTheMaximum() {
+        ResponseEntity<?> response = controller.getNearestAmbulances(40.0, -74.0, 5, 20_000, null, false);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(ambulanceService, never()).findNearest(anyDouble(), anyDouble(), anyInt(), anyDouble(), any(), any());
+    }
+
+    @Test
+    public void testNearestWithoutStatusSearchesEveryStatus() {
+        when(ambulanceService.findNearest(40.0, -74.0, 5, 50, null, false)).thenReturn(List.of());
+
+        ResponseEntity<?> response = controller.getNearestAmbulances(40.0, -74.0, 5, 50, null, false);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(ambulanceService).findNearest(40.0, -74.0, 5, 50, null, false);
+    }
+}
@@ -1,6 +1,7 @@
 package com.carefleet.controller;
 
 import com.carefleet.dto.LoginRequest;
+import com.carefleet.security.AuthRateLimiter;
 import com.carefleet.service.AuthService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -23,6 +24,9 @@ public class AuthControllerTest {
     @MockBean
     private AuthService authService;
 
+    @MockBean
+    private AuthRateLimiter rateLimiter;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -0,0 +1,136 @@
+package com.carefleet.controller;
+
+import com.carefleet.config.WebSocketConfig;
+import com.carefleet.security.JwtAuthenticationFilter;
+import com.carefleet.security.StompAuthenticationInterceptor;
+import com.carefleet.service.AmbulanceService;
+import com.carefleet.service.LocationPingCodec;
+import com.carefleet.service.SessionBackpressure;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sends a binary STOMP frame over a real WebSocket to the ingest endpoint. The broker, the
+ * CONNECT authentication and the controller are the production ones; only the services behind
+ * them are mocked.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = LocationIngestControllerTest.IngestApplication.class)
+public class LocationIngestControllerTest {
+
+    @Configuration
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class, WebSocketServletAutoConfiguration.class, JacksonAutoConfiguration.class})
+    @Import({WebSocketConfig.class, StompAuthenticationInterceptor.class, SessionBackpressure.class,
+            LocationIngestController.class})
+    static class IngestApplication {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        // The mocked filter would otherwise be installed in the servlet chain and swallow the handshake
+        @Bean
+        public FilterRegistrationBean<JwtAuthenticationFilter> jwtFilterRegistration(JwtAuthenticationFilter filter) {
+            FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+            registration.setEnabled(false);
+            return registration;
+        }
+    }
+
+    @MockBean
+    private AmbulanceService ambulanceService;
+
+    @MockBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testBinaryFrameIsIngestedAndAcknowledged() throws Exception {
+        when(jwtAuthenticationFilter.authenticate("driver-token")).thenReturn(new UsernamePasswordAuthenticationToken(
+                "driver-1", null, List.of(new SimpleGrantedAuthority("ROLE_AMBULANCE_DRIVER"))));
+        when(ambulanceService.ingestPings(eq("amb-1"), any(ByteBuffer.class))).thenReturn(2);
+
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new CompositeMessageConverter(List.of(
+                new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer driver-token");
+        StompSession session = client.connectAsync("ws://localhost:" + port + "/api/v1/ws-ingest", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<Map<?, ?>> acks = new ArrayBlockingQueue<>(1);
+        session.subscribe("/user/queue/locations/ack", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                acks.add((Map<?, ?>) payload);
+            }
+        });
+
+        ByteBuffer pings = LocationPingCodec.allocate(2);
+        LocationPingCodec.write(pings, System.currentTimeMillis() - 1000, 40.71, -74.0, 12, 90);
+        LocationPingCodec.write(pings, System.currentTimeMillis(), 40.72, -74.0, 12, 90);
+        StompHeaders sendHeaders = new StompHeaders();
+        sendHeaders.setDestination("/app/ambulances/amb-1/locations");
+        // With an octet-stream body the client sends the frame as a binary WebSocket message
+        sendHeaders.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        // The subscription has to be registered before the ack is sent
+        Thread.sleep(200);
+        session.send(sendHeaders, pings.array());
+
+        Map<?, ?> ack = acks.poll(10, TimeUnit.SECONDS);
+        assertNotNull(ack);
+        assertEquals("amb-1", ack.get("ambulanceId"));
+        assertEquals(2, ack.get("accepted"));
+        assertEquals(0, ack.get("rejected"));
+        verify(ambulanceService).ingestPings(eq("amb-1"), any(ByteBuffer.class));
+        session.disconnect();
+    }
+}
@@ -0,0 +1,75 @@
+package com.carefleet.controller;
+
+import com.carefleet.dto.BedDto;
+import com.carefleet.service.BedService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonBodyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testWritesOneValuePerLineAndClosesTheStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<BedDto> beds = Stream.of(bed("B101"), bed("B102")).onClose(() -> closed.set(true));
+
+        ResponseEntity<StreamingResponseBody> response = NdjsonBody.of(objectMapper,
+                beds.map(bed -> BedService.FIELDS.project(bed, Set.of("bedNumber"))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertEquals("{\"bedNumber\":\"B101\"}\n{\"bedNumber\":\"B102\"}\n", out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void testFlushesInBatchesRatherThanPerLine() throws IOException {
+        int[] flushes = {0};
+        OutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        new NdjsonBody(objectMapper, IntStream.range(0, NdjsonBody.FLUSH_EVERY * 2).boxed()).writeTo(out);
+
+        // Two full batches plus the final flush on close
+        assertEquals(3, flushes[0]);
+    }
+
+    @Test
+    public void testClosesTheStreamWhenTheClientGoesAway() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<BedDto> beds = Stream.generate(() -> bed("B101")).onClose(() -> closed.set(true));
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> new NdjsonBody(objectMapper, beds).writeTo(disconnected));
+        assertTrue(closed.get());
+    }
+
+    private static BedDto bed(String bedNumber) {
+        return new BedDto("bed-" + bedNumber, "hosp-1", bedNumber, "ICU", "AVAILABLE", null, null, null, null);
+    }
+}
@@ -0,0 +1,77 @@
+package com.carefleet.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private ResponseCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new ResponseCache();
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "gzipMinBytes", 1024);
+        cache.init();
+    }
+
+    @Test
+    public void testRepeatedReadReusesEncodedBytes() {
+        AtomicInteger loads = new AtomicInteger();
+        ResponseEntity<byte[]> first = cache.get("beds:h1:3", null, () -> {
+            loads.incrementAndGet();
+            return ResponseEntity.ok().header(HospitalController.NEXT_CURSOR_HEADER, "abc").body(List.of("bed-1"));
+        });
+        ResponseEntity<byte[]> second = cache.get("beds:h1:3", null, () -> {
+            loads.incrementAndGet();
+            return ResponseEntity.ok().body(List.of("bed-2"));
+        });
+
+        assertEquals(1, loads.get());
+        assertSame(first.getBody(), second.getBody());
+        assertEquals("[\"bed-1\"]", new String(second.getBody()));
+        assertEquals("abc", second.getHeaders().getFirst(HospitalController.NEXT_CURSOR_HEADER));
+        // Too small to be worth compressing
+        assertNull(second.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testLargeBodiesAreServedGzipped() throws Exception {
+        List<String> body = Collections.nCopies(500, "ambulance");
+        ResponseEntity<byte[]> gzipped = cache.get("ambulances:1", "gzip, deflate, br", () -> ResponseEntity.ok().body(body));
+        ResponseEntity<byte[]> plain = cache.get("ambulances:1", "identity", () -> ResponseEntity.ok().body(body));
+
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, plain.getHeaders().getFirst(HttpHeaders.VARY));
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzipped.getBody().length < plain.getBody().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertArrayEquals(plain.getBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testAcceptEncoding() {
+        assertTrue(ResponseCache.acceptsGzip("gzip"));
+        assertTrue(ResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(ResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCache.acceptsGzip("deflate"));
+        assertFalse(ResponseCache.acceptsGzip(null));
+    }
+}
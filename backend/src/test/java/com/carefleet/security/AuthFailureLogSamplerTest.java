@@ -0,0 +1,31 @@
+package com.carefleet.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthFailureLogSamplerTest {
+
+    @Test
+    public void testLogsFirstOfEachKindPerInterval() throws Exception {
+        AuthFailureLogSampler sampler = new AuthFailureLogSampler(50);
+
+        assertEquals(0, sampler.sample("expired"));
+        assertEquals(-1, sampler.sample("expired"));
+        assertEquals(-1, sampler.sample("expired"));
+        assertEquals(0, sampler.sample("malformed"));
+
+        Thread.sleep(60);
+        // The next report carries the count suppressed in the previous interval
+        assertEquals(2, sampler.sample("expired"));
+        assertEquals(-1, sampler.sample("expired"));
+    }
+
+    @Test
+    public void testZeroIntervalLogsEverything() {
+        AuthFailureLogSampler sampler = new AuthFailureLogSampler(0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, sampler.sample("expired"));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.carefleet.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AuthRateLimiterTest {
+
+    private StringRedisTemplate redisTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private AuthRateLimiter rateLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new AuthRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(rateLimiter, "ipCapacity", 3);
+        ReflectionTestUtils.setField(rateLimiter, "ipRefillMs", 60_000L);
+        ReflectionTestUtils.setField(rateLimiter, "accountCapacity", 2);
+        ReflectionTestUtils.setField(rateLimiter, "accountRefillMs", 60_000L);
+        rateLimiter.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEmptyBucketIsRememberedLocally() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("carefleet:rate-limit:register:ip:10.0.0.1")),
+                any(Object[].class))).thenReturn(0L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("carefleet:rate-limit:register:account:nurse@example.com")),
+                any(Object[].class))).thenReturn(0L, 30_000L);
+
+        assertEquals(0, rateLimiter.acquire("register", "10.0.0.1", "Nurse@Example.com "));
+        long wait = rateLimiter.acquire("register", "10.0.0.1", "nurse@example.com");
+        assertTrue(wait > 29_000 && wait <= 30_000);
+
+        // Rejected from the local cache; only the IP bucket goes to Redis again
+        assertTrue(rateLimiter.acquire("register", "10.0.0.1", "nurse@example.com") > 0);
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class),
+                eq(List.of("carefleet:rate-limit:register:ip:10.0.0.1")), any(Object[].class));
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class),
+                eq(List.of("carefleet:rate-limit:register:account:nurse@example.com")), any(Object[].class));
+        assertEquals(2.0, meterRegistry.counter("auth.rate_limit.rejected", "endpoint", "register").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOnlyFailedLoginsFromTheSameClientLockAnAccount() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("down"));
+        ReflectionTestUtils.setField(rateLimiter, "ipCapacity", 100);
+
+        // Successful logins check the account bucket without using it up
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.acquireLogin("10.0.0.1", "nurse@example.com"));
+        }
+        // Someone else failing from other addresses does not touch this client's bucket
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.loginFailed("10.9.9." + i, "nurse@example.com");
+            rateLimiter.loginFailed("10.9.9." + i, "nurse@example.com");
+        }
+        assertEquals(0, rateLimiter.acquireLogin("10.0.0.1", "nurse@example.com"));
+
+        rateLimiter.loginFailed("10.0.0.1", "nurse@example.com");
+        rateLimiter.loginFailed("10.0.0.1", "Nurse@Example.com");
+        assertTrue(rateLimiter.acquireLogin("10.0.0.1", "nurse@example.com") > 0);
+        assertTrue(rateLimiter.acquireLogin("10.9.9.0", "nurse@example.com") > 0);
+        assertEquals(0, rateLimiter.acquireLogin("10.9.9.0", "doctor@example.com"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFallsBackToLocalBucketsWithoutRedis() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("down"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.acquire("register", "10.0.0.2", "user" + i + "@example.com"));
+        }
+        assertTrue(rateLimiter.acquire("register", "10.0.0.2", "other@example.com") > 0);
+        assertEquals(0, rateLimiter.acquire("register", "10.0.0.3", "other@example.com"));
+    }
+
+    @Test
+    public void testLocalBucketRefills() {
+        AuthRateLimiter.LocalBucket bucket = new AuthRateLimiter.LocalBucket(2, 0);
+        assertEquals(0, bucket.take(2, 1000, 0));
+        assertEquals(0, bucket.take(2, 1000, 0));
+        assertEquals(1000, bucket.take(2, 1000, 0));
+        assertEquals(0, bucket.take(2, 1000, 1000));
+        assertEquals(500, bucket.take(2, 1000, 1500));
+    }
+}
@@ -0,0 +1,94 @@
+package com.carefleet.security;
+
+import com.carefleet.model.User;
+import com.carefleet.model.UserRole;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtTokenProviderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtTokenProvider tokenProvider;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "carefleet-test-secret-key-with-enough-entropy-for-hmac");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 60_000);
+        ReflectionTestUtils.setField(tokenProvider, "jwtRefreshExpirationInMs", 120_000);
+        ReflectionTestUtils.setField(tokenProvider, "claimsCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(tokenProvider, "meterRegistry", meterRegistry);
+        tokenProvider.init();
+
+        user = new User("driver@carefleet.com", "hash", "Dana", "Driver", UserRole.AMBULANCE_DRIVER);
+        user.setId("user-1");
+    }
+
+    @Test
+    public void testRepeatedTokenIsServedFromCache() {
+        String token = tokenProvider.generateTokenFromUser(user, 60_000);
+
+        Claims first = tokenProvider.getClaims(token);
+        Claims second = tokenProvider.getClaims(token);
+
+        assertEquals("user-1", first.getSubject());
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwt.claims").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwt.claims").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void testTamperedTokenIsRejected() {
+        String token = tokenProvider.generateTokenFromUser(user, 60_000);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertTrue(tokenProvider.validateToken(token));
+        assertFalse(tokenProvider.validateToken(tampered));
+    }
+
+    @Test
+    public void testPrincipalIsRebuiltFromClaims() {
+        user.setHospitalId("hosp-1");
+        user.setEmailVerified(true);
+        user.setTokenVersion(3);
+        String token = tokenProvider.generateTokenFromUser(user, 60_000);
+
+        User principal = tokenProvider.getUserFromClaims(tokenProvider.getClaims(token));
+
+        assertEquals("user-1", principal.getId());
+        assertEquals("driver@carefleet.com", principal.getEmail());
+        assertEquals(UserRole.AMBULANCE_DRIVER, principal.getRole());
+        assertEquals("hosp-1", principal.getHospitalId());
+        assertTrue(principal.isEmailVerified());
+        assertEquals(3, principal.getTokenVersion());
+    }
+
+    @Test
+    public void testExpiredTokenIsRejected() {
+        String token = tokenProvider.generateTokenFromUser(user, -1_000);
+
+        assertFalse(tokenProvider.validateToken(token));
+    }
+
+    @Test
+    public void testRefreshTokenCarriesFamily() {
+        String refresh = tokenProvider.generateRefreshToken(user, "family-1", "token-1");
+        String access = tokenProvider.generateAccessToken(user);
+
+        Claims claims = tokenProvider.getClaims(refresh);
+        assertTrue(tokenProvider.isRefreshToken(claims));
+        assertEquals("family-1", tokenProvider.getRefreshFamily(claims));
+        assertEquals("token-1", claims.getId());
+        assertEquals("user-1", claims.getSubject());
+        assertFalse(tokenProvider.isRefreshToken(tokenProvider.getClaims(access)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.carefleet.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledPasswordEncoderTest {
+
+    @Test
+    public void testHashesOnPoolAndRecordsTimings() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PooledPasswordEncoder encoder = new PooledPasswordEncoder(5, 1, 10, meterRegistry);
+        try {
+            String hash = encoder.encode("s3cret");
+            assertTrue(hash.startsWith("$2a$05$"));
+            assertTrue(encoder.matches("s3cret", hash));
+            assertFalse(encoder.matches("wrong", hash));
+            assertEquals(3, meterRegistry.timer("auth.password.hash").count());
+            assertEquals(3, meterRegistry.timer("auth.password.queue").count());
+        } finally {
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    public void testStoredHashesAtAnotherStrengthAreRehashed() {
+        PooledPasswordEncoder encoder = new PooledPasswordEncoder(6, 1, 10, new SimpleMeterRegistry());
+        try {
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("s3cret")));
+            // Left behind by an instance that calibrated higher
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(8).encode("s3cret")));
+            assertFalse(encoder.upgradeEncoding(encoder.encode("s3cret")));
+        } finally {
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        PooledPasswordEncoder encoder = new PooledPasswordEncoder(12, 1, 1, new SimpleMeterRegistry());
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch started = new CountDownLatch(2);
+            List<Future<?>> inFlight = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                inFlight.add(callers.submit(() -> {
+                    started.countDown();
+                    return encoder.encode("s3cret");
+                }));
+            }
+            started.await();
+            Thread.sleep(50);
+            // One hash running, one queued, so a third is turned away
+            assertThrows(IllegalStateException.class, () -> encoder.encode("s3cret"));
+        } finally {
+            encoder.destroy();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCalibrationStaysWithinBounds() {
+        assertEquals(4, PooledPasswordEncoder.calibrate(0, 4, 8));
+        int strength = PooledPasswordEncoder.calibrate(50, 4, 8);
+        assertTrue(strength >= 4 && strength <= 8);
+    }
+}
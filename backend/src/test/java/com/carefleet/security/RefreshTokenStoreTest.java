@@ -0,0 +1,76 @@
+package com.carefleet.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RefreshTokenStoreTest {
+
+    private StringRedisTemplate redisTemplate;
+    private RefreshTokenStore store;
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        store = new RefreshTokenStore();
+        ReflectionTestUtils.setField(store, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(store, "refreshExpirationMs", 604_800_000L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFamilyExpiresWithTheRefreshToken() {
+        String family = store.open("token-1");
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("carefleet:refresh-family:" + family)),
+                eq("token-1"), eq("604800000"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRotationOutcomes() {
+        List<String> key = List.of("carefleet:refresh-family:family-1");
+        when(redisTemplate.execute(any(RedisScript.class), eq(key), any(Object[].class)))
+                .thenReturn(List.of("1", "token-2"), List.of("-2"), List.of("-1"));
+
+        RefreshTokenStore.RotationResult rotated = store.rotate("family-1", "token-1", "token-2");
+        assertEquals(RefreshTokenStore.Rotation.ROTATED, rotated.getOutcome());
+        assertEquals("token-2", rotated.getTokenId());
+        assertEquals(RefreshTokenStore.Rotation.REUSED, store.rotate("family-1", "token-1", "token-3").getOutcome());
+        assertEquals(RefreshTokenStore.Rotation.UNKNOWN, store.rotate("family-1", "token-2", "token-4").getOutcome());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRetryWithinGraceGetsTheCurrentTokenBack() {
+        ReflectionTestUtils.setField(store, "reuseGraceMs", 30_000L);
+        List<String> key = List.of("carefleet:refresh-family:family-1");
+        when(redisTemplate.execute(any(RedisScript.class), eq(key), any(Object[].class)))
+                .thenReturn(List.of("0", "token-2"));
+
+        RefreshTokenStore.RotationResult retried = store.rotate("family-1", "token-1", "token-3");
+
+        assertEquals(RefreshTokenStore.Rotation.RETRIED, retried.getOutcome());
+        assertEquals("token-2", retried.getTokenId());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(key), eq("token-1"), eq("token-3"),
+                eq("604800000"), eq("30000"), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnreachableRedisIsNotTreatedAsRevoked() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThrows(IllegalStateException.class, () -> store.rotate("family-1", "token-1", "token-2"));
+    }
+}
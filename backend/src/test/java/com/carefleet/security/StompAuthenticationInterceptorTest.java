@@ -0,0 +1,66 @@
+package com.carefleet.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StompAuthenticationInterceptorTest {
+
+    private StompAuthenticationInterceptor interceptor;
+    private final MessageChannel channel = mock(MessageChannel.class);
+
+    @BeforeEach
+    public void setUp() {
+        interceptor = new StompAuthenticationInterceptor();
+        ReflectionTestUtils.setField(interceptor, "jwtAuthenticationFilter", mock(JwtAuthenticationFilter.class));
+    }
+
+    @Test
+    public void testAnonymousSubscribeIsRejected() {
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/topic/ambulances", null), channel));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/user/queue/locations/ack", null), channel));
+    }
+
+    @Test
+    public void testTopicsTakeTheSameRolesAsTheRestEndpoint() {
+        Principal doctor = user("ROLE_DOCTOR");
+        Principal admin = user("ROLE_HOSPITAL_ADMIN");
+        Principal driver = user("ROLE_AMBULANCE_DRIVER");
+
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("/topic/hospitals/h-1/ambulances", doctor), channel));
+        assertNotNull(interceptor.preSend(subscribe("/topic/hospitals/h-1/ambulances", admin), channel));
+        assertNotNull(interceptor.preSend(subscribe("/topic/ambulances", driver), channel));
+        // A user's own queue only needs an authenticated connection
+        assertNotNull(interceptor.preSend(subscribe("/user/queue/locations/ack", doctor), channel));
+    }
+
+    private static Message<byte[]> subscribe(String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId("sub-1");
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Principal user(String role) {
+        return new UsernamePasswordAuthenticationToken("user-1", null, List.of(new SimpleGrantedAuthority(role)));
+    }
+}
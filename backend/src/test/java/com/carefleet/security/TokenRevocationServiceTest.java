@@ -0,0 +1,104 @@
+package com.carefleet.security;
+
+import com.carefleet.model.User;
+import com.carefleet.service.UserDetailsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TokenRevocationServiceTest {
+
+    private static final List<String> KEY = List.of(TokenRevocationService.KEY_PREFIX + "user-1");
+
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private MongoTemplate mongoTemplate;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        mongoTemplate = mock(MongoTemplate.class);
+
+        service = new TokenRevocationService();
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "userDetailsService", mock(UserDetailsServiceImpl.class));
+        ReflectionTestUtils.setField(service, "cacheTtlMs", 15_000L);
+        ReflectionTestUtils.setField(service, "redisTtlMs", 604_800_000L);
+        service.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRevokePublishesTheNewVersion() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(User.class))).thenReturn(user(3));
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEY), eq("3"), eq("604800000"))).thenReturn(3L);
+
+        assertEquals(3, service.revokeAll("user-1"));
+
+        assertFalse(service.isCurrent("user-1", 2));
+        assertTrue(service.isCurrent("user-1", 3));
+        verify(valueOperations, never()).set(anyString(), anyString(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCacheMissKeepsANewerVersionPublishedMeanwhile() {
+        when(valueOperations.get(KEY.get(0))).thenReturn(null);
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(user(1));
+        // Another replica revoked after MongoDB was read; Redis keeps its version
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEY), eq("1"), anyString())).thenReturn(2L);
+
+        assertEquals(2, service.getVersion("user-1"));
+        assertFalse(service.isCurrent("user-1", 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRevokeFailsWhenRedisCannotBeUpdated() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(User.class))).thenReturn(user(3));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThrows(IllegalStateException.class, () -> service.revokeAll("user-1"));
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLookupFallsBackToMongoWhenRedisIsDown() {
+        when(valueOperations.get(anyString())).thenThrow(new QueryTimeoutException("timeout"));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(user(4));
+
+        assertEquals(4, service.getVersion("user-1"));
+    }
+
+    private static User user(int tokenVersion) {
+        User user = new User();
+        user.setId("user-1");
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+}
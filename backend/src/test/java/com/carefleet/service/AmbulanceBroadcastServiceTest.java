@@ -0,0 +1,92 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceDeltaDto;
+import com.carefleet.dto.AmbulanceDeltaFrameDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AmbulanceBroadcastServiceTest {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private AmbulancePositionStore store;
+    private AmbulanceBroadcastService broadcastService;
+
+    @BeforeEach
+    public void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        store = new AmbulancePositionStore(64);
+        broadcastService = new AmbulanceBroadcastService();
+        ReflectionTestUtils.setField(broadcastService, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(broadcastService, "positionStore", store);
+        ReflectionTestUtils.setField(broadcastService, "meterRegistry", new SimpleMeterRegistry());
+        broadcastService.init();
+    }
+
+    @Test
+    public void testCoalescesPingsIntoOneFrame() {
+        store.update("amb-1", 40.0, -74.0, Double.NaN, Double.NaN, 1_000);
+        broadcastService.markChanged("amb-1");
+        store.update("amb-1", 40.1, -74.1, Double.NaN, Double.NaN, 2_000);
+        broadcastService.markChanged("amb-1");
+
+        broadcastService.publishChanges();
+
+        ArgumentCaptor<AmbulanceDeltaFrameDto> frame = ArgumentCaptor.forClass(AmbulanceDeltaFrameDto.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq(AmbulanceBroadcastService.FLEET_TOPIC), frame.capture());
+        assertEquals(1, frame.getValue().getChanges().size());
+        assertEquals(40.1, frame.getValue().getChanges().get(0).getLatitude());
+    }
+
+    @Test
+    public void testOnlyChangedFieldsArePublished() {
+        store.update("amb-1", 40.0, -74.0, 30.0, 90.0, 1_000);
+        broadcastService.markChanged("amb-1");
+        broadcastService.publishChanges();
+        reset(messagingTemplate);
+
+        store.updateDescriptor("amb-1", new AmbulancePositionStore.Descriptor(
+                "amb-1", null, null, "TO_HOSPITAL", "hosp-1", true, "2024-01-01T00:00:00Z"));
+        broadcastService.markChanged("amb-1");
+        broadcastService.publishChanges();
+
+        ArgumentCaptor<AmbulanceDeltaFrameDto> frame = ArgumentCaptor.forClass(AmbulanceDeltaFrameDto.class);
+        verify(messagingTemplate).convertAndSend(eq(AmbulanceBroadcastService.FLEET_TOPIC), frame.capture());
+        ArgumentCaptor<AmbulanceDeltaFrameDto> hospitalFrame = ArgumentCaptor.forClass(AmbulanceDeltaFrameDto.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/hospitals/hosp-1/ambulances"), hospitalFrame.capture());
+
+        AmbulanceDeltaDto delta = frame.getValue().getChanges().get(0);
+        assertEquals("TO_HOSPITAL", delta.getStatus());
+        assertEquals(Boolean.TRUE, delta.getPatientOnBoard());
+        assertNull(delta.getLatitude());
+        assertNull(delta.getSpeed());
+
+        // The hospital has not seen this ambulance before, so it gets every field
+        AmbulanceDeltaDto baseline = hospitalFrame.getValue().getChanges().get(0);
+        assertEquals(40.0, baseline.getLatitude());
+        assertEquals(30.0, baseline.getSpeed());
+        assertEquals("TO_HOSPITAL", baseline.getStatus());
+        assertEquals("hosp-1", baseline.getDestinationHospitalId());
+    }
+
+    @Test
+    public void testNothingPublishedWithoutChanges() {
+        store.update("amb-1", 40.0, -74.0, Double.NaN, Double.NaN, 1_000);
+        broadcastService.markChanged("amb-1");
+        broadcastService.publishChanges();
+        reset(messagingTemplate);
+
+        store.update("amb-1", 40.0, -74.0, Double.NaN, Double.NaN, 2_000);
+        broadcastService.markChanged("amb-1");
+        broadcastService.publishChanges();
+
+        verifyNoInteractions(messagingTemplate);
+    }
+}
\ No newline at end of file
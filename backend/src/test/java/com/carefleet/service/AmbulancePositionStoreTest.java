@@ -0,0 +1,153 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AmbulancePositionStoreTest {
+
+    @Test
+    public void testUpdateAndSnapshot() {
+        AmbulancePositionStore store = new AmbulancePositionStore(1024);
+        store.update("amb-1", 40.7128, -74.0060, 12.5, Double.NaN, 1_700_000_000_000L);
+        store.update("amb-2", 51.5074, -0.1278, Double.NaN, 90.0, 1_700_000_001_000L);
+        store.update("amb-1", 40.7130, -74.0050, 13.0, 45.0, 1_700_000_002_000L);
+
+        List<AmbulanceDto> snapshot = store.snapshot();
+        assertEquals(2, snapshot.size());
+
+        AmbulanceDto first = store.get("amb-1");
+        assertEquals("AVAILABLE", first.getStatus());
+        assertEquals(40.7130, first.getCurrentLocation().getLatitude());
+        assertEquals(-74.0050, first.getCurrentLocation().getLongitude());
+        assertEquals(45.0, first.getCurrentLocation().getHeading());
+
+        AmbulanceDto second = store.get("amb-2");
+        assertNull(second.getCurrentLocation().getSpeed());
+        assertEquals(90.0, second.getCurrentLocation().getHeading());
+    }
+
+    @Test
+    public void testOlderPingDoesNotOverwriteNewerPosition() {
+        AmbulancePositionStore store = new AmbulancePositionStore(16);
+        assertTrue(store.update("amb-1", 40.7130, -74.0050, 13.0, 45.0, 1_700_000_002_000L));
+        assertFalse(store.update("amb-1", 40.7128, -74.0060, 12.5, 90.0, 1_700_000_001_000L));
+
+        AmbulanceDto current = store.get("amb-1");
+        assertEquals(40.7130, current.getCurrentLocation().getLatitude());
+        assertEquals(45.0, current.getCurrentLocation().getHeading());
+    }
+
+    @Test
+    public void testChangesSinceVersion() {
+        AmbulancePositionStore store = new AmbulancePositionStore(16);
+        long start = store.version();
+        store.update("amb-1", 40.7128, -74.0060, 12.5, 0, 1_700_000_000_000L);
+        store.update("amb-2", 51.5074, -0.1278, 0, 90.0, 1_700_000_000_000L);
+        long seen = store.version();
+        assertTrue(seen > start);
+        assertTrue(store.canDiffFrom(seen));
+        assertEquals(0, store.streamChangedSince(seen).count());
+
+        // A stale ping changes nothing, a status change does
+        store.update("amb-1", 40.0, -74.0, 0, 0, 1_600_000_000_000L);
+        assertEquals(seen, store.version());
+        store.updateDescriptor("amb-2", new AmbulancePositionStore.Descriptor(
+                "amb-2", "CF-2", null, "BUSY", null, false, "2024-01-01T00:00:00Z"));
+
+        List<AmbulanceDto> changed = store.streamChangedSince(seen).toList();
+        assertEquals(1, changed.size());
+        assertEquals("BUSY", changed.get(0).getStatus());
+        assertEquals(2, store.streamChangedSince(start).count());
+
+        assertFalse(store.canDiffFrom(start - 1));
+        assertFalse(store.canDiffFrom(store.version() + 1));
+    }
+
+    @Test
+    public void testPollDuringAnUnwrittenStampDoesNotSkipIt() {
+        AmbulancePositionStore store = new AmbulancePositionStore(16);
+        long since = store.version();
+        // Writer A has taken its stamp but not written it; writer B, stamped after it, finishes
+        long pending = store.reserveStamp();
+        store.update("amb-2", 51.5074, -0.1278, 0, 90.0, 1_700_000_000_000L);
+
+        // A poll between the two: the version must not pass A's stamp, or A is never reported
+        long version = store.version();
+        List<AmbulanceDto> changed = store.streamChangedSince(since).toList();
+        assertEquals(since, version);
+        assertEquals("amb-2", changed.get(0).getId());
+
+        store.stampWritten(pending);
+        assertEquals(pending + 1, store.version());
+        assertEquals(1, store.streamChangedSince(version).count());
+        assertEquals(0, store.streamChangedSince(store.version()).count());
+    }
+
+    @Test
+    public void testCapacitySpansPages() {
+        AmbulancePositionStore store = new AmbulancePositionStore(AmbulancePositionStore.PAGE_SIZE * 2);
+        for (int i = 0; i < AmbulancePositionStore.PAGE_SIZE * 2; i++) {
+            store.update("amb-" + i, i, i, 0, 0, i + 1);
+        }
+        assertEquals(AmbulancePositionStore.PAGE_SIZE * 2, store.snapshot().size());
+        assertThrows(IllegalStateException.class, () -> store.update("overflow", 0, 0, 0, 0, 1));
+    }
+
+    @Test
+    public void testReadersNeverSeeTornWrites() throws Exception {
+        AmbulancePositionStore store = new AmbulancePositionStore(64);
+        int writers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean torn = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 1; n <= 20_000; n++) {
+                    // Every field carries the same value so a mixed read is detectable
+                    store.update("amb-" + (n % 8), n, n, n, n, n);
+                }
+            });
+            threads.add(writer);
+            writer.start();
+        }
+
+        Thread reader = new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (int n = 0; n < 500; n++) {
+                for (AmbulanceDto dto : store.snapshot()) {
+                    AmbulanceDto.LocationDto location = dto.getCurrentLocation();
+                    if (location != null && (location.getLatitude() != location.getLongitude()
+                            || location.getLatitude() != location.getSpeed())) {
+                        torn.set(true);
+                    }
+                }
+            }
+        });
+        threads.add(reader);
+        reader.start();
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(torn.get());
+        assertEquals(8, store.size());
+    }
+}
\ No newline at end of file
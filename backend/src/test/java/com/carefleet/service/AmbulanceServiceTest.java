@@ -0,0 +1,41 @@
+package com.carefleet.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AmbulanceServiceTest {
+
+    private AmbulancePositionStore store;
+    private AmbulanceService service;
+
+    @BeforeEach
+    public void setUp() {
+        store = new AmbulancePositionStore(16);
+        service = new AmbulanceService();
+        ReflectionTestUtils.setField(service, "positionStore", store);
+    }
+
+    @Test
+    public void testFleetVersionDiffsWithinTheSameInstance() {
+        String seen = service.getFleetVersion();
+        store.update("amb-1", 40.7128, -74.0060, 0, 0, 1_700_000_000_000L);
+
+        assertEquals(1, service.getAmbulancesChangedSince(seen).size());
+        assertEquals(0, service.getAmbulancesChangedSince(service.getFleetVersion()).size());
+    }
+
+    @Test
+    public void testVersionFromAnotherInstanceFallsBackToFullList() {
+        AmbulancePositionStore other = new AmbulancePositionStore(16);
+        // Same number, different epoch: the clocks of two instances can line up
+        String foreign = other.epoch() + "." + store.version();
+        store.update("amb-1", 40.7128, -74.0060, 0, 0, 1_700_000_000_000L);
+
+        assertNull(service.getAmbulancesChangedSince(foreign));
+        assertNull(service.getAmbulancesChangedSince(String.valueOf(store.version())));
+        assertNull(service.getAmbulancesChangedSince(store.epoch() + ".latest"));
+    }
+}
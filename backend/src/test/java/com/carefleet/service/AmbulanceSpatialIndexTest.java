@@ -0,0 +1,95 @@
+package com.carefleet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AmbulanceSpatialIndexTest {
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        AmbulancePositionStore store = new AmbulancePositionStore(4096);
+        AmbulanceSpatialIndex index = new AmbulanceSpatialIndex(store, 0.02, 50);
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            double latitude = 40.5 + random.nextDouble() * 0.5;
+            double longitude = -74.3 + random.nextDouble() * 0.6;
+            store.update("amb-" + i, latitude, longitude, Double.NaN, Double.NaN, i + 1);
+            index.update("amb-" + i, latitude, longitude);
+            points.add(new double[] { latitude, longitude, i });
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double latitude = 40.5 + random.nextDouble() * 0.5;
+            double longitude = -74.3 + random.nextDouble() * 0.6;
+
+            List<AmbulanceSpatialIndex.Match> matches = index.nearest(latitude, longitude, 5, 25, d -> true);
+
+            List<double[]> expected = new ArrayList<>(points);
+            expected.sort(Comparator.comparingDouble(p -> AmbulanceSpatialIndex.distanceKm(latitude, longitude, p[0], p[1])));
+            assertEquals(5, matches.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals("amb-" + (int) expected.get(i)[2], matches.get(i).getAmbulanceId());
+            }
+        }
+    }
+
+    @Test
+    public void testRadiusAndFilter() {
+        AmbulancePositionStore store = new AmbulancePositionStore(64);
+        AmbulanceSpatialIndex index = new AmbulanceSpatialIndex(store, 0.02, 50);
+        store.update("near", 40.7128, -74.0060, Double.NaN, Double.NaN, 1);
+        index.update("near", 40.7128, -74.0060);
+        store.update("busy", 40.7130, -74.0061, Double.NaN, Double.NaN, 1);
+        index.update("busy", 40.7130, -74.0061);
+        store.updateDescriptor("busy", new AmbulancePositionStore.Descriptor(
+                "busy", null, null, "IN_TRANSIT", null, true, "2024-01-01T00:00:00Z"));
+        store.update("far", 42.3601, -71.0589, Double.NaN, Double.NaN, 1);
+        index.update("far", 42.3601, -71.0589);
+
+        List<AmbulanceSpatialIndex.Match> matches = index.nearest(40.7127, -74.0059, 10, 25,
+                d -> "AVAILABLE".equals(d.getStatus()) && !d.isPatientOnBoard());
+
+        assertEquals(1, matches.size());
+        assertEquals("near", matches.get(0).getAmbulanceId());
+    }
+
+    @Test
+    public void testMovingBetweenCells() {
+        AmbulancePositionStore store = new AmbulancePositionStore(64);
+        AmbulanceSpatialIndex index = new AmbulanceSpatialIndex(store, 0.02, 50);
+        store.update("amb-1", 40.0, -74.0, Double.NaN, Double.NaN, 1);
+        index.update("amb-1", 40.0, -74.0);
+        store.update("amb-1", 41.0, -73.0, Double.NaN, Double.NaN, 2);
+        index.update("amb-1", 41.0, -73.0);
+
+        assertTrue(index.nearest(40.0, -74.0, 1, 5, d -> true).isEmpty());
+        assertEquals(1, index.nearest(41.0, -73.0, 1, 5, d -> true).size());
+    }
+
+    @Test
+    public void testWideRadiusNearThePoleScansOccupiedCells() {
+        AmbulancePositionStore store = new AmbulancePositionStore(64);
+        AmbulanceSpatialIndex index = new AmbulanceSpatialIndex(store, 0.02, 50);
+        store.update("station", 78.2232, 15.6267, Double.NaN, Double.NaN, 1);
+        index.update("station", 78.2232, 15.6267);
+        store.update("camp", 79.5, 40.0, Double.NaN, Double.NaN, 1);
+        index.update("camp", 79.5, 40.0);
+        store.update("mainland", 69.6492, 18.9553, Double.NaN, Double.NaN, 1);
+        index.update("mainland", 69.6492, 18.9553);
+
+        // 500 km at 79 degrees would take thousands of rings; the scan answers the same
+        List<AmbulanceSpatialIndex.Match> matches = index.nearest(79.0, 20.0, 5, 500, d -> true);
+
+        assertEquals(2, matches.size());
+        assertEquals("station", matches.get(0).getAmbulanceId());
+        assertEquals("camp", matches.get(1).getAmbulanceId());
+    }
+}
@@ -0,0 +1,108 @@
+package com.carefleet.service;
+
+import com.carefleet.model.Assignment;
+import com.carefleet.model.AssignmentPriority;
+import com.carefleet.model.AssignmentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssignmentQueueTest {
+
+    private final AssignmentQueue queue = new AssignmentQueue();
+    private final Instant now = Instant.parse("2024-01-15T09:00:00Z");
+
+    @Test
+    public void testNextOrdersByPriorityThenScheduledTime() {
+        queue.apply(assignment("a-1", "nurse-1", AssignmentPriority.MEDIUM, now));
+        queue.apply(assignment("a-2", "nurse-1", AssignmentPriority.CRITICAL, now.plusSeconds(3600)));
+        queue.apply(assignment("a-3", "nurse-1", AssignmentPriority.MEDIUM, now.minusSeconds(600)));
+        queue.apply(assignment("a-4", "nurse-2", AssignmentPriority.HIGH, now));
+
+        List<Assignment> next = queue.next("nurse-1", 10);
+
+        assertEquals(List.of("a-2", "a-3", "a-1"), next.stream().map(Assignment::getId).toList());
+        assertEquals(1, queue.next("nurse-1", 1).size());
+        assertTrue(queue.next("nobody", 10).isEmpty());
+    }
+
+    @Test
+    public void testClosingOrReassigningMovesTheTask() {
+        queue.apply(assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now));
+        queue.apply(assignment("a-2", "nurse-1", AssignmentPriority.LOW, now));
+
+        Assignment reassigned = assignment("a-1", "nurse-2", AssignmentPriority.HIGH, now);
+        reassigned.setVersion(1);
+        queue.apply(reassigned);
+        Assignment completed = assignment("a-2", "nurse-1", AssignmentPriority.LOW, now);
+        completed.setStatus(AssignmentStatus.COMPLETED);
+        completed.setVersion(1);
+        queue.apply(completed);
+
+        assertTrue(queue.next("nurse-1", 10).isEmpty());
+        assertEquals("a-1", queue.next("nurse-2", 10).get(0).getId());
+        assertTrue(queue.forBed("bed-a-2").isEmpty());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testOlderCopyDoesNotReplaceNewerOne() {
+        Assignment started = assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now);
+        started.setStatus(AssignmentStatus.IN_PROGRESS);
+        started.setVersion(2);
+        queue.apply(started);
+
+        queue.apply(assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now));
+
+        assertEquals(AssignmentStatus.IN_PROGRESS, queue.next("nurse-1", 1).get(0).getStatus());
+        assertEquals(1, queue.forBed("bed-a-1").size());
+    }
+
+    @Test
+    public void testReconcileDropsOnlyTasksClosedBeforeTheLoad() {
+        queue.apply(assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now));
+        queue.apply(assignment("a-2", "nurse-1", AssignmentPriority.HIGH, now));
+        AssignmentQueue.Snapshot beforeLoad = queue.snapshot();
+        // Created on this instance while the load was running
+        queue.apply(assignment("a-3", "nurse-1", AssignmentPriority.HIGH, now));
+
+        queue.reconcile(List.of(assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now),
+                assignment("a-4", "nurse-1", AssignmentPriority.LOW, now)), beforeLoad);
+
+        assertEquals(List.of("a-1", "a-3", "a-4"),
+                queue.next("nurse-1", 10).stream().map(Assignment::getId).toList());
+    }
+
+    @Test
+    public void testStaleLoadDoesNotReopenTaskClosedDuringIt() {
+        queue.apply(assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now));
+        AssignmentQueue.Snapshot beforeLoad = queue.snapshot();
+        // The load reads the pending copy, then the task is completed before the load is applied
+        Assignment staleCopy = assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now);
+        Assignment completed = assignment("a-1", "nurse-1", AssignmentPriority.HIGH, now);
+        completed.setStatus(AssignmentStatus.COMPLETED);
+        completed.setVersion(1);
+        queue.apply(completed);
+
+        queue.reconcile(List.of(staleCopy), beforeLoad);
+
+        assertTrue(queue.next("nurse-1", 10).isEmpty());
+        assertEquals(Map.of("a-1", 1L), queue.snapshot().closed);
+
+        // The next load started after the close, so it no longer needs the tombstone
+        queue.reconcile(List.of(), queue.snapshot());
+        assertTrue(queue.snapshot().closed.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    private static Assignment assignment(String id, String staffId, AssignmentPriority priority, Instant scheduledTime) {
+        Assignment assignment = new Assignment(staffId, "CHECKUP", priority, scheduledTime);
+        assignment.setId(id);
+        assignment.setBedId("bed-" + id);
+        return assignment;
+    }
+}
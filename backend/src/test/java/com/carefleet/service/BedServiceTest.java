@@ -0,0 +1,198 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.BedAvailabilityDto;
+import com.carefleet.dto.BedDto;
+import com.carefleet.dto.BedRequest;
+import com.carefleet.dto.BedReservationRequest;
+import com.carefleet.model.Bed;
+import com.carefleet.model.BedStatus;
+import com.carefleet.model.BedType;
+import com.carefleet.repository.BedRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BedServiceTest {
+
+    private BedRepository bedRepository;
+    private MongoTemplate mongoTemplate;
+    private BedAvailabilityIndex availabilityIndex;
+    private BedService bedService;
+
+    @BeforeEach
+    public void setUp() {
+        bedRepository = mock(BedRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        availabilityIndex = new BedAvailabilityIndex();
+        bedService = new BedService();
+        ReflectionTestUtils.setField(bedService, "bedRepository", bedRepository);
+        ReflectionTestUtils.setField(bedService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(bedService, "availabilityIndex", availabilityIndex);
+        ReflectionTestUtils.setField(bedService, "reservationTtlMinutes", 30L);
+        when(bedRepository.save(any(Bed.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    public void testCreatedBedsAreCounted() {
+        bedService.createBed("hosp-1", request("ICU-1", "ICU", null));
+        bedService.createBed("hosp-1", request("ICU-2", "ICU", "MAINTENANCE"));
+        bedService.createBed("hosp-1", request("ER-1", "EMERGENCY", null));
+
+        List<BedAvailabilityDto> icu = bedService.getAvailability("hosp-1", "ICU");
+        assertEquals(1, icu.size());
+        assertEquals(1, icu.get(0).getAvailable());
+        assertEquals(1, icu.get(0).getMaintenance());
+        assertEquals(2, icu.get(0).getTotal());
+        assertEquals(2, bedService.getAvailability("hosp-1", null).size());
+    }
+
+    @Test
+    public void testReservationMovesCountersOnlyWhenItWins() {
+        availabilityIndex.adjust("hosp-1", BedType.ICU, BedStatus.AVAILABLE, 1);
+        Bed reserved = bed("bed-1", BedType.ICU, BedStatus.RESERVED);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Bed.class)))
+                .thenReturn(reserved)
+                .thenReturn(null);
+        BedReservationRequest request = new BedReservationRequest();
+        request.setType("ICU");
+
+        BedDto first = bedService.reserveBed("hosp-1", request, "crew-1");
+        BedDto second = bedService.reserveBed("hosp-1", request, "crew-2");
+
+        assertNotNull(first);
+        assertEquals("RESERVED", first.getStatus());
+        assertNull(second);
+        assertEquals(0, availabilityIndex.count("hosp-1", BedType.ICU, BedStatus.AVAILABLE));
+        assertEquals(1, availabilityIndex.count("hosp-1", BedType.ICU, BedStatus.RESERVED));
+        // Only the winning write moves the version that cached bed pages are keyed by
+        assertEquals(1, bedService.getVersion("hosp-1"));
+        assertEquals(0, bedService.getVersion("hosp-2"));
+    }
+
+    @Test
+    public void testUpdateMovesCountersFromThePreviousState() {
+        availabilityIndex.adjust("hosp-1", BedType.GENERAL, BedStatus.AVAILABLE, 1);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Bed.class)))
+                .thenReturn(bed("bed-1", BedType.GENERAL, BedStatus.AVAILABLE));
+
+        BedDto updated = bedService.updateBed("hosp-1", "bed-1", request(null, null, "OCCUPIED"));
+
+        assertEquals("OCCUPIED", updated.getStatus());
+        assertEquals(0, availabilityIndex.count("hosp-1", BedType.GENERAL, BedStatus.AVAILABLE));
+        assertEquals(1, availabilityIndex.count("hosp-1", BedType.GENERAL, BedStatus.OCCUPIED));
+    }
+
+    @Test
+    public void testUpdateCannotReserveWithoutExpiry() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bedService.updateBed("hosp-1", "bed-1", request(null, null, "RESERVED")));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Bed.class));
+    }
+
+    @Test
+    public void testUpdateOfMissingBedAndDuplicateNumberAreTold() {
+        when(bedRepository.existsByHospitalIdAndBedNumber("hosp-1", "ICU-1")).thenReturn(true);
+        assertThrows(DuplicateKeyException.class, () -> bedService.createBed("hosp-1", request("ICU-1", "ICU", null)));
+
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Bed.class)))
+                .thenReturn(null);
+        assertThrows(BedService.BedNotFoundException.class,
+                () -> bedService.updateBed("hosp-1", "bed-9", request(null, null, "OCCUPIED")));
+    }
+
+    @Test
+    public void testPageStopsAtLimitAndHandsBackACursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Bed.class))).thenReturn(new ArrayList<>(List.of(
+                bed("bed-1", BedType.ICU, BedStatus.AVAILABLE),
+                bed("bed-2", BedType.ICU, BedStatus.OCCUPIED),
+                bed("bed-3", BedType.ICU, BedStatus.AVAILABLE))));
+
+        CursorPage<BedDto> page = bedService.getBeds("hosp-1", null, 2, BedService.FIELDS.parse("id,status"));
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("BED-2", CursorPage.decodeCursor(page.getNextCursor()));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Bed.class));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(Set.of("id", "status", "bedNumber"), query.getValue().getFieldsObject().keySet());
+    }
+
+    @Test
+    public void testCursorResumesAfterTheLastBed() {
+        when(mongoTemplate.find(any(Query.class), eq(Bed.class))).thenReturn(new ArrayList<>());
+
+        CursorPage<BedDto> page = bedService.getBeds("hosp-1", CursorPage.encodeCursor("BED-2"), 2, null);
+
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Bed.class));
+        assertEquals("BED-2", query.getValue().getQueryObject().get("bedNumber", Document.class).get("$gt"));
+        assertTrue(query.getValue().getFieldsObject().isEmpty());
+    }
+
+    @Test
+    public void testRebuildKeepsChangesMadeWhileItRuns() {
+        availabilityIndex.adjust("hosp-1", BedType.ICU, BedStatus.AVAILABLE, 7);
+        Document group = new Document("_id", new Document("hospitalId", "hosp-1").append("type", "ICU")
+                .append("status", "AVAILABLE")).append("count", 3);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Bed.class), eq(Document.class))).thenAnswer(invocation -> {
+            // A reservation lands after the aggregation has counted the bed as available
+            availabilityIndex.apply(bed("b1", BedType.ICU, BedStatus.AVAILABLE), bed("b1", BedType.ICU, BedStatus.RESERVED));
+            return new AggregationResults<>(List.of(group), new Document());
+        });
+
+        bedService.rebuildAvailability();
+
+        assertEquals(2, availabilityIndex.count("hosp-1", BedType.ICU, BedStatus.AVAILABLE));
+        assertEquals(1, availabilityIndex.count("hosp-1", BedType.ICU, BedStatus.RESERVED));
+
+        // Once the rebuild is done, adjusts are no longer recorded
+        availabilityIndex.adjust("hosp-1", BedType.ICU, BedStatus.AVAILABLE, 1);
+        assertEquals(3, availabilityIndex.count("hosp-1", BedType.ICU, BedStatus.AVAILABLE));
+    }
+
+    @Test
+    public void testFailedRebuildKeepsTheCurrentCounts() {
+        availabilityIndex.adjust("hosp-1", BedType.ICU, BedStatus.AVAILABLE, 4);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Bed.class), eq(Document.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        bedService.rebuildAvailability();
+
+        assertEquals(4, availabilityIndex.count("hosp-1", BedType.ICU, BedStatus.AVAILABLE));
+    }
+
+    private static BedRequest request(String bedNumber, String type, String status) {
+        BedRequest request = new BedRequest();
+        request.setBedNumber(bedNumber);
+        request.setType(type);
+        request.setStatus(status);
+        return request;
+    }
+
+    private static Bed bed(String id, BedType type, BedStatus status) {
+        Bed bed = new Bed("hosp-1", id.toUpperCase(), type);
+        bed.setId(id);
+        bed.setStatus(status);
+        return bed;
+    }
+}
@@ -0,0 +1,130 @@
+package com.carefleet.service;
+
+import com.carefleet.model.EmailOutboxMessage;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class EmailOutboxServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private JavaMailSender mailSender;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailOutboxService outbox;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        mailSender = mock(JavaMailSender.class);
+        meterRegistry = new SimpleMeterRegistry();
+        outbox = new EmailOutboxService(mongoTemplate, mailSender, meterRegistry, 1, 10, 3, 1000, 60_000, 5_000, 1000, 5000);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(EmailOutboxMessage.class)))
+                .thenAnswer(invocation -> UpdateResult.acknowledged(2, 2L, null));
+    }
+
+    @Test
+    public void testBatchIsSentInOneCall() {
+        outbox.deliver(List.of(message("a", "a@carefleet.com", 0), message("b", "b@carefleet.com", 0)));
+
+        ArgumentCaptor<SimpleMailMessage[]> sent = ArgumentCaptor.forClass(SimpleMailMessage[].class);
+        verify(mailSender, times(1)).send(sent.capture());
+        assertEquals(2, sent.getValue().length);
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(EmailOutboxMessage.class));
+        assertEquals(2.0, meterRegistry.get("mail.outbox.messages").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    public void testFailedMessagesAreRescheduledOrGivenUp() {
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new HashMap<>();
+            for (Object argument : invocation.getArguments()) {
+                SimpleMailMessage mail = (SimpleMailMessage) argument;
+                if (!mail.getTo()[0].startsWith("a@")) {
+                    failed.put(mail, new RuntimeException("mailbox busy"));
+                }
+            }
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        outbox.deliver(List.of(message("a", "a@carefleet.com", 0), message("b", "b@carefleet.com", 0),
+                message("c", "c@carefleet.com", 2)));
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), updates.capture(), eq(EmailOutboxMessage.class));
+        List<String> statuses = updates.getAllValues().stream()
+                .map(update -> String.valueOf(update.getUpdateObject().get("$set", Map.class).get("status")))
+                .toList();
+        assertTrue(statuses.contains("PENDING"));
+        assertTrue(statuses.contains("FAILED"));
+        Update failedUpdate = updates.getAllValues().stream()
+                .filter(update -> "FAILED".equals(String.valueOf(update.getUpdateObject().get("$set", Map.class).get("status"))))
+                .findFirst().orElseThrow();
+        assertTrue(failedUpdate.getUpdateObject().get("$set", Map.class).containsKey("closedAt"));
+        assertTrue(failedUpdate.getUpdateObject().get("$unset", Map.class).containsKey("body"));
+        assertEquals(1.0, meterRegistry.get("mail.outbox.messages").tag("result", "sent").counter().count());
+        assertEquals(1.0, meterRegistry.get("mail.outbox.messages").tag("result", "retried").counter().count());
+        assertEquals(1.0, meterRegistry.get("mail.outbox.messages").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    public void testOutcomesAreOnlyRecordedUnderTheCurrentClaim() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(EmailOutboxMessage.class)))
+                .thenAnswer(invocation -> claimed("a", invocation.getArgument(1)))
+                .thenAnswer(invocation -> claimed("b", invocation.getArgument(1)))
+                .thenReturn(null);
+        doThrow(new MailSendException("connection reset")).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        assertEquals(2, outbox.processBatch());
+
+        // The lease is restarted for the whole batch once it is claimed
+        ArgumentCaptor<Update> renewal = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(any(Query.class), renewal.capture(), eq(EmailOutboxMessage.class));
+        assertTrue(renewal.getValue().getUpdateObject().get("$set", Map.class).containsKey("nextAttemptAt"));
+        assertEquals(Duration.ofSeconds(70), outbox.batchLease(2));
+
+        ArgumentCaptor<Query> failed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateFirst(failed.capture(), any(Update.class), eq(EmailOutboxMessage.class));
+        String claimToken = failed.getAllValues().get(0).getQueryObject().getString("claimToken");
+        assertNotNull(claimToken);
+        assertEquals(claimToken, failed.getAllValues().get(1).getQueryObject().getString("claimToken"));
+    }
+
+    @Test
+    public void testBackoffDoublesUpToTheCap() {
+        assertEquals(Duration.ofSeconds(1), outbox.backoff(1));
+        assertEquals(Duration.ofSeconds(4), outbox.backoff(3));
+        assertEquals(Duration.ofSeconds(5), outbox.backoff(10));
+    }
+
+    private static EmailOutboxMessage claimed(String id, Update claim) {
+        EmailOutboxMessage message = message(id, id + "@carefleet.com", 0);
+        message.setClaimToken((String) claim.getUpdateObject().get("$set", Map.class).get("claimToken"));
+        return message;
+    }
+
+    private static EmailOutboxMessage message(String id, String to, int attempts) {
+        EmailOutboxMessage message = new EmailOutboxMessage(to, "Subject", "Body");
+        message.setId(id);
+        message.setAttempts(attempts);
+        return message;
+    }
+}
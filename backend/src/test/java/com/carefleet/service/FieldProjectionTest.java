@@ -0,0 +1,36 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.StaffDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FieldProjectionTest {
+
+    @Test
+    public void testOnlySelectedFieldsAreProjected() {
+        StaffDto staff = new StaffDto("1", "hosp-1", "EMP001", "Jane", "Smith", "DOCTOR", "Emergency",
+                "MORNING", true, "+1234567890", "jane.smith@hospital.com", null, null);
+
+        Set<String> fields = StaffService.FIELDS.parse("lastName, active");
+        List<Map<String, Object>> projected = StaffService.FIELDS.project(List.of(staff), fields);
+
+        assertEquals(Map.of("lastName", "Smith", "active", true), projected.get(0));
+        assertEquals(List.of("lastName", "active"), List.copyOf(projected.get(0).keySet()));
+    }
+
+    @Test
+    public void testNoSelectionMeansEveryField() {
+        assertNull(StaffService.FIELDS.parse(null));
+        assertNull(StaffService.FIELDS.parse(" "));
+    }
+
+    @Test
+    public void testUnknownFieldIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> StaffService.FIELDS.parse("id,salary"));
+    }
+}
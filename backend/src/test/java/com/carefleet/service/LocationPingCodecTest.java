@@ -0,0 +1,46 @@
+package com.carefleet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocationPingCodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        ByteBuffer out = LocationPingCodec.allocate(2);
+        LocationPingCodec.write(out, 1_700_000_000_000L, 40.7128, -74.0060, 12.5, 90.0);
+        LocationPingCodec.write(out, 1_700_000_001_000L, 40.7130, -74.0050, Double.NaN, Double.NaN);
+        out.flip();
+
+        List<double[]> pings = new ArrayList<>();
+        int count = LocationPingCodec.decode(out, (timestamp, latitude, longitude, speed, heading) ->
+                pings.add(new double[]{timestamp, latitude, longitude, speed, heading}));
+
+        assertEquals(2, count);
+        assertArrayEquals(new double[]{1_700_000_000_000L, 40.7128, -74.0060, 12.5, 90.0}, pings.get(0));
+        assertEquals(40.7130, pings.get(1)[1]);
+        assertTrue(Double.isNaN(pings.get(1)[3]));
+        assertTrue(Double.isNaN(pings.get(1)[4]));
+        // Decoding leaves the caller's buffer untouched
+        assertEquals(0, out.position());
+    }
+
+    @Test
+    public void testRejectsMalformedPayloads() {
+        assertThrows(IllegalArgumentException.class, () -> LocationPingCodec.count(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> LocationPingCodec.count(ByteBuffer.wrap(new byte[]{2})));
+        ByteBuffer truncated = LocationPingCodec.allocate(1);
+        truncated.putLong(1L).flip();
+        assertThrows(IllegalArgumentException.class, () -> LocationPingCodec.count(truncated));
+        ByteBuffer tooMany = LocationPingCodec.allocate(LocationPingCodec.MAX_PINGS + 1);
+        tooMany.position(tooMany.capacity()).flip();
+        assertThrows(IllegalArgumentException.class, () -> LocationPingCodec.count(tooMany));
+        assertEquals(0, LocationPingCodec.count(ByteBuffer.wrap(new byte[]{LocationPingCodec.VERSION})));
+    }
+}
@@ -0,0 +1,121 @@
+package com.carefleet.service;
+
+import com.carefleet.model.Ambulance;
+import com.carefleet.model.AmbulanceLocation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LocationWriteBehindServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations positionOps;
+    private BulkOperations historyOps;
+    private SimpleMeterRegistry meterRegistry;
+    private LocationWriteBehindService writeBehind;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        positionOps = mock(BulkOperations.class, RETURNS_SELF);
+        historyOps = mock(BulkOperations.class, RETURNS_SELF);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Ambulance.class))).thenReturn(positionOps);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(AmbulanceLocation.class))).thenReturn(historyOps);
+        meterRegistry = new SimpleMeterRegistry();
+        writeBehind = new LocationWriteBehindService(mongoTemplate, meterRegistry, 100, 60_000, 1_000, 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCoalescesPositionsAndAppendsHistory() {
+        writeBehind.enqueue("amb-1", 1, 1, Double.NaN, Double.NaN, 1_000);
+        writeBehind.enqueue("amb-1", 2, 2, 10.0, Double.NaN, 2_000);
+        writeBehind.enqueue("amb-2", 3, 3, Double.NaN, 90.0, 3_000);
+        writeBehind.enqueue("amb-1", 4, 4, 12.0, 180.0, 4_000);
+
+        assertTrue(writeBehind.flush());
+
+        verify(positionOps, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(positionOps).execute();
+        verify(historyOps).insert((List<AmbulanceLocation>) argThat(list -> ((List<?>) list).size() == 4));
+        verify(historyOps).execute();
+        assertEquals(0, writeBehind.getQueueDepth());
+        assertEquals(4.0, meterRegistry.counter("tracking.writebehind.written", "kind", "history").count());
+        assertEquals(2.0, meterRegistry.counter("tracking.writebehind.written", "kind", "position").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPartialFailureRequeuesOnlyFailedSamples() {
+        BulkWriteError failed = new BulkWriteError(91, "shutting down", new BsonDocument(), 1);
+        when(historyOps.execute())
+                .thenThrow(new BulkOperationException("partial", new MongoBulkWriteException(
+                        BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()), List.of(failed), null,
+                        new ServerAddress(), Set.of())))
+                .thenReturn(null);
+        writeBehind.enqueue("amb-1", 1, 1, Double.NaN, Double.NaN, 1_000);
+        writeBehind.enqueue("amb-1", 2, 2, Double.NaN, Double.NaN, 2_000);
+        writeBehind.enqueue("amb-1", 3, 3, Double.NaN, Double.NaN, 3_000);
+
+        assertFalse(writeBehind.flush());
+        assertEquals(1, writeBehind.getQueueDepth());
+        assertEquals(2.0, meterRegistry.counter("tracking.writebehind.written", "kind", "history").count());
+
+        // Only the failed sample is inserted again, and the written position is not rewritten
+        assertTrue(writeBehind.flush());
+        verify(historyOps).insert((List<AmbulanceLocation>) argThat(list ->
+                ((List<AmbulanceLocation>) list).size() == 1 && ((List<AmbulanceLocation>) list).get(0).getLatitude() == 2));
+        verify(positionOps, times(1)).execute();
+    }
+
+    @Test
+    public void testFailedFlushKeepsSamplesForRetry() {
+        when(historyOps.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+        writeBehind.enqueue("amb-1", 1, 1, Double.NaN, Double.NaN, 1_000);
+        writeBehind.enqueue("amb-1", 2, 2, Double.NaN, Double.NaN, 2_000);
+
+        assertFalse(writeBehind.flush());
+        assertEquals(2, writeBehind.getQueueDepth());
+        assertEquals(1.0, meterRegistry.counter("tracking.writebehind.flush.failures").count());
+    }
+
+    @Test
+    public void testDropsWhenQueueIsFull() {
+        LocationWriteBehindService small = new LocationWriteBehindService(mongoTemplate, meterRegistry, 100, 60_000, 2, 1);
+        small.enqueue("amb-1", 1, 1, Double.NaN, Double.NaN, 1_000);
+        small.enqueue("amb-1", 2, 2, Double.NaN, Double.NaN, 2_000);
+        small.enqueue("amb-1", 3, 3, Double.NaN, Double.NaN, 3_000);
+
+        assertEquals(2, small.getQueueDepth());
+        assertEquals(1.0, meterRegistry.counter("tracking.writebehind.dropped").count());
+    }
+
+    @Test
+    public void testStopDrainsBufferedSamples() {
+        writeBehind.start();
+        writeBehind.enqueue("amb-1", 1, 1, Double.NaN, Double.NaN, 1_000);
+        writeBehind.stop();
+
+        assertFalse(writeBehind.isRunning());
+        assertEquals(0, writeBehind.getQueueDepth());
+        verify(historyOps, atLeastOnce()).execute();
+    }
+}
\ No newline at end of file
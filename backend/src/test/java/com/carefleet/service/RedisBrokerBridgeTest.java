@@ -0,0 +1,147 @@
+package com.carefleet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Three instances joined by an in-memory stand-in for Redis pub/sub, which delivers every
+ * published message to all subscribers, the publisher included, as Redis does.
+ */
+public class RedisBrokerBridgeTest {
+
+    private final List<RedisBrokerBridge> bridges = new ArrayList<>();
+    private final List<List<Message<?>>> delivered = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < 3; i++) {
+            RedisBrokerBridge bridge = new RedisBrokerBridge();
+            List<Message<?>> received = new CopyOnWriteArrayList<>();
+            MessageChannel brokerChannel = (message, timeout) -> received.add(bridge.preSend(message, null));
+
+            StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+            doAnswer(invocation -> {
+                byte[] body = invocation.<String>getArgument(1).getBytes(StandardCharsets.UTF_8);
+                bridges.forEach(subscriber -> subscriber.onMessage(
+                        new DefaultMessage("carefleet:stomp".getBytes(StandardCharsets.UTF_8), body), null));
+                return 1L;
+            }).when(redisTemplate).convertAndSend(anyString(), anyString());
+
+            ReflectionTestUtils.setField(bridge, "redisTemplate", redisTemplate);
+            ReflectionTestUtils.setField(bridge, "objectMapper", objectMapper);
+            ReflectionTestUtils.setField(bridge, "brokerChannel", brokerChannel);
+            ReflectionTestUtils.setField(bridge, "channel", "carefleet:stomp");
+            ReflectionTestUtils.setField(bridge, "destinations", List.of("/topic/"));
+            ReflectionTestUtils.setField(bridge, "publishQueueCapacity", 2);
+            ReflectionTestUtils.setField(bridge, "meterRegistry", meterRegistry);
+            bridge.startPublisher();
+            bridges.add(bridge);
+            delivered.add(received);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bridges.forEach(RedisBrokerBridge::stopPublisher);
+    }
+
+    @Test
+    public void testTopicMessageReachesEveryOtherInstanceOnce() {
+        Message<byte[]> frame = message("/topic/ambulances", "{\"sequence\":1}");
+        assertSame(frame, bridges.get(0).preSend(frame, null));
+
+        awaitDelivered(1, 1);
+        awaitDelivered(2, 1);
+        assertTrue(delivered.get(0).isEmpty(), "the publisher ignores its own echo");
+        for (int i = 1; i < 3; i++) {
+            assertEquals(1, delivered.get(i).size());
+            Message<?> replayed = delivered.get(i).get(0);
+            assertEquals("/topic/ambulances", SimpMessageHeaderAccessor.getDestination(replayed.getHeaders()));
+            assertEquals("{\"sequence\":1}", new String((byte[]) replayed.getPayload(), StandardCharsets.UTF_8));
+            assertEquals(MimeTypeUtils.APPLICATION_JSON.toString(),
+                    replayed.getHeaders().get("contentType").toString());
+            assertEquals(bridges.get(0).getInstanceId(), replayed.getHeaders().get(RedisBrokerBridge.ORIGIN_HEADER));
+        }
+    }
+
+    @Test
+    public void testSessionDestinationsStayLocal() {
+        bridges.get(0).preSend(message("/queue/locations/ack-user123", "{}"), null);
+
+        delivered.forEach(received -> assertTrue(received.isEmpty()));
+    }
+
+    @Test
+    public void testPublishFailureStillDeliversLocally() {
+        StringRedisTemplate down = mock(StringRedisTemplate.class);
+        when(down.convertAndSend(anyString(), anyString())).thenThrow(new IllegalStateException("down"));
+        ReflectionTestUtils.setField(bridges.get(0), "redisTemplate", down);
+
+        Message<byte[]> frame = message("/topic/ambulances", "{}");
+        assertSame(frame, bridges.get(0).preSend(frame, null));
+    }
+
+    @Test
+    public void testHangingRedisDoesNotBlockTheBroker() throws Exception {
+        CountDownLatch redisBack = new CountDownLatch(1);
+        StringRedisTemplate hanging = mock(StringRedisTemplate.class);
+        when(hanging.convertAndSend(anyString(), anyString())).thenAnswer(invocation -> {
+            redisBack.await();
+            return 1L;
+        });
+        ReflectionTestUtils.setField(bridges.get(0), "redisTemplate", hanging);
+
+        // One message stuck in the publisher, two queued, the rest dropped for the other instances
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Message<byte[]> frame = message("/topic/ambulances", "{}");
+            assertSame(frame, bridges.get(0).preSend(frame, null));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        double dropped = meterRegistry.counter("websocket.broker.redis.dropped").count();
+        assertTrue(dropped >= 7 && dropped <= 8, "dropped " + dropped);
+
+        redisBack.countDown();
+        verify(hanging, timeout(5000).times(10 - (int) dropped)).convertAndSend(anyString(), anyString());
+    }
+
+    private void awaitDelivered(int instance, int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delivered.get(instance).size() < count && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(count, delivered.get(instance).size());
+    }
+
+    private static Message<byte[]> message(String destination, String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
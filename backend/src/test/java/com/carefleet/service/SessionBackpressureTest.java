@@ -0,0 +1,154 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceDeltaDto;
+import com.carefleet.dto.AmbulanceDeltaFrameDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SessionBackpressureTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Message<?>> resent = new ArrayList<>();
+    private SessionBackpressure backpressure;
+    private WebSocketSession tracked;
+    private WebSocketSession raw;
+    private WebSocketHandler handler;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        backpressure = new SessionBackpressure();
+        ReflectionTestUtils.setField(backpressure, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(backpressure, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(backpressure, "clientOutboundChannel",
+                (MessageChannel) (message, timeout) -> resent.add(message));
+        ReflectionTestUtils.setField(backpressure, "conflatedDestinations", List.of("/topic/ambulances"));
+        backpressure.init();
+
+        handler = mock(WebSocketHandler.class);
+        doAnswer(invocation -> tracked = invocation.getArgument(0)).when(handler).afterConnectionEstablished(any());
+        raw = mock(WebSocketSession.class);
+        when(raw.getId()).thenReturn("s1");
+        backpressure.decorate(handler).afterConnectionEstablished(raw);
+    }
+
+    @Test
+    public void testFramesDuringAWriteAreMergedAndSentAfterIt() throws Exception {
+        List<Message<?>> passed = new ArrayList<>();
+        doAnswer(invocation -> {
+            // The broker keeps publishing while the socket write is stuck
+            passed.add(backpressure.preSend(frame(2, change("amb-1", 40.1, null), change("amb-2", 41.0, "EN_ROUTE")), null));
+            passed.add(backpressure.preSend(frame(3, change("amb-1", 40.2, null)), null));
+            passed.add(backpressure.preSend(frame(4, change("amb-2", null, "AT_SCENE")), null));
+            return null;
+        }).when(raw).sendMessage(any());
+
+        assertNotNull(backpressure.preSend(frame(1, change("amb-1", 40.0, null)), null));
+        tracked.sendMessage(new TextMessage("frame 1"));
+
+        assertEquals(3, passed.size());
+        passed.forEach(held -> assertNull(held));
+        assertEquals(1, resent.size());
+        AmbulanceDeltaFrameDto merged = objectMapper.readValue((byte[]) resent.get(0).getPayload(), AmbulanceDeltaFrameDto.class);
+        assertEquals(4, merged.getSequence());
+        assertEquals(2, merged.getChanges().size());
+        assertEquals(40.2, merged.getChanges().get(0).getLatitude());
+        assertEquals(41.0, merged.getChanges().get(1).getLatitude());
+        assertEquals("AT_SCENE", merged.getChanges().get(1).getStatus());
+        assertEquals(2.0, meterRegistry.counter("websocket.outbound.conflated").count());
+    }
+
+    @Test
+    public void testNewerFrameWaitsForTheReleasedOne() throws Exception {
+        doAnswer(invocation -> {
+            backpressure.preSend(frame(2, change("amb-1", 40.1, "EN_ROUTE")), null);
+            return null;
+        }).doNothing().when(raw).sendMessage(any());
+        tracked.sendMessage(new TextMessage("frame 1"));
+        Message<?> released = resent.get(0);
+
+        // Arrives after the write ended but before the merged frame reached the session
+        assertNull(backpressure.preSend(frame(3, change("amb-1", 40.2, "AT_SCENE")), null));
+
+        assertSame(released, backpressure.preSend(released, null));
+        backpressure.afterMessageHandled(released, null, null, null);
+        tracked.sendMessage(new TextMessage("frame 2"));
+
+        assertEquals(2, resent.size());
+        AmbulanceDeltaFrameDto latest = objectMapper.readValue((byte[]) resent.get(1).getPayload(), AmbulanceDeltaFrameDto.class);
+        assertEquals(3, latest.getSequence());
+        assertEquals("AT_SCENE", latest.getChanges().get(0).getStatus());
+
+        // Nothing in flight any more, so frames pass straight through again
+        backpressure.afterMessageHandled(resent.get(1), null, null, null);
+        assertNotNull(backpressure.preSend(frame(4, change("amb-1", 40.3, null)), null));
+    }
+
+    @Test
+    public void testOtherDestinationsAreNeverHeld() throws Exception {
+        List<Message<?>> passed = new ArrayList<>();
+        doAnswer(invocation -> {
+            passed.add(backpressure.preSend(message("/topic/emergency-calls", "{}"), null));
+            return null;
+        }).when(raw).sendMessage(any());
+
+        tracked.sendMessage(new TextMessage("frame"));
+
+        assertNotNull(passed.get(0));
+        assertTrue(resent.isEmpty());
+    }
+
+    @Test
+    public void testHeldFramesAreDroppedWhenASlowSessionIsClosed() throws Exception {
+        doAnswer(invocation -> {
+            backpressure.preSend(frame(2, change("amb-1", 40.1, null)), null);
+            backpressure.decorate(handler).afterConnectionClosed(raw, CloseStatus.SESSION_NOT_RELIABLE);
+            return null;
+        }).when(raw).sendMessage(any());
+
+        tracked.sendMessage(new TextMessage("frame"));
+
+        assertTrue(resent.isEmpty());
+        assertEquals(1.0, meterRegistry.counter("websocket.outbound.dropped").count());
+        assertEquals(1.0, meterRegistry.counter("websocket.outbound.terminated").count());
+    }
+
+    private static AmbulanceDeltaDto change(String id, Double latitude, String status) {
+        AmbulanceDeltaDto change = new AmbulanceDeltaDto(id);
+        change.setLatitude(latitude);
+        change.setStatus(status);
+        return change;
+    }
+
+    private Message<byte[]> frame(long sequence, AmbulanceDeltaDto... changes) throws Exception {
+        return message("/topic/ambulances",
+                objectMapper.writeValueAsString(new AmbulanceDeltaFrameDto(sequence, "t" + sequence, List.of(changes))));
+    }
+
+    private static Message<byte[]> message(String destination, String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        return MessageBuilder.createMessage(json.getBytes(), accessor.getMessageHeaders());
+    }
+}
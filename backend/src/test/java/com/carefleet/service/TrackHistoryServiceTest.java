@@ -0,0 +1,214 @@
+package com.carefleet.service;
+
+import com.carefleet.dto.AmbulanceTrackDto;
+import com.carefleet.model.AmbulanceLocation;
+import com.carefleet.model.AmbulanceTrackBucket;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TrackHistoryServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private TrackHistoryService trackHistoryService;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        trackHistoryService = new TrackHistoryService();
+        ReflectionTestUtils.setField(trackHistoryService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(trackHistoryService, "maxPoints", 5000);
+        ReflectionTestUtils.setField(trackHistoryService, "rollupDelayMs", 5000L);
+        ReflectionTestUtils.setField(trackHistoryService, "rollupOverlapMs", 120_000L);
+        ReflectionTestUtils.setField(trackHistoryService, "rollupLookbackMs", 3_600_000L);
+        ReflectionTestUtils.setField(trackHistoryService, "maxDirtyWindows", 1000);
+    }
+
+    @Test
+    public void testLongRangesAreServedFromCoarserTiers() {
+        assertEquals(TrackHistoryService.Resolution.RAW, trackHistoryService.resolutionFor(Duration.ofMinutes(30)));
+        assertEquals(TrackHistoryService.Resolution.TEN_SECONDS, trackHistoryService.resolutionFor(Duration.ofHours(12)));
+        assertEquals(TrackHistoryService.Resolution.ONE_MINUTE, trackHistoryService.resolutionFor(Duration.ofDays(3)));
+    }
+
+    @Test
+    public void testTwelveHourTrackReadsTheTenSecondTier() {
+        Instant to = Instant.parse("2024-01-15T21:00:00Z");
+        AmbulanceTrackBucket bucket = new AmbulanceTrackBucket();
+        bucket.setTimestamp(to.minusSeconds(3600));
+        bucket.setLatitude(40.71);
+        bucket.setLongitude(-74.0);
+        bucket.setSpeed(42.0);
+        bucket.setMaxSpeed(55.0);
+        bucket.setSamples(10);
+        when(mongoTemplate.find(any(Query.class), eq(AmbulanceTrackBucket.class), eq("ambulance_tracks_10s")))
+                .thenReturn(List.of(bucket));
+
+        AmbulanceTrackDto track = trackHistoryService.getTrack("amb-1", to.minus(Duration.ofHours(12)), to, null);
+
+        assertEquals("10s", track.getResolution());
+        assertEquals(1, track.getPoints().size());
+        assertEquals(55.0, track.getPoints().get(0).getMaxSpeed());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(AmbulanceLocation.class), anyString());
+    }
+
+    @Test
+    public void testMinuteTierAveragesSpeedOverTheUnderlyingPings() {
+        List<Document> pipeline = TrackHistoryService.rollupPipeline(TrackHistoryService.Resolution.ONE_MINUTE,
+                Instant.parse("2024-01-15T09:00:00Z"), Instant.parse("2024-01-15T09:10:00Z"), true);
+
+        Document group = pipeline.get(2).get("$group", Document.class);
+        assertEquals(new Document("$sum", "$speedSum"), group.get("speedSum"));
+        assertEquals(new Document("$sum", "$samples"), group.get("samples"));
+        Document bucketStart = group.get("_id", Document.class).get("timestamp", Document.class).get("$dateTrunc", Document.class);
+        assertEquals(60L, bucketStart.get("binSize"));
+        assertEquals("ambulance_tracks_1m", pipeline.get(4).get("$merge", Document.class).getString("into"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRollupAdvancesToTheLastCompleteMinute() {
+        trackHistoryService.rollup();
+
+        verify(mongoTemplate).execute(eq("ambulance_locations"), any(CollectionCallback.class));
+        verify(mongoTemplate).execute(eq("ambulance_tracks_10s"), any(CollectionCallback.class));
+        Instant rolledUpTo = (Instant) ReflectionTestUtils.getField(trackHistoryService, "rolledUpTo");
+        assertEquals(0, rolledUpTo.toEpochMilli() % 60_000);
+        assertTrue(rolledUpTo.isBefore(Instant.now()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRollupResumesFromThePersistedWatermark() {
+        Instant watermark = TrackHistoryService.truncate(Instant.now().minus(Duration.ofHours(6)),
+                TrackHistoryService.Resolution.ONE_MINUTE);
+        when(mongoTemplate.findById("watermark", Document.class, TrackHistoryService.STATE_COLLECTION))
+                .thenReturn(new Document("rolledUpTo", Date.from(watermark)));
+        List<Document>[] pipeline = new List[1];
+        when(mongoTemplate.execute(eq("ambulance_locations"), any(CollectionCallback.class))).thenAnswer(invocation -> {
+            pipeline[0] = capturePipeline(invocation.getArgument(1));
+            return null;
+        });
+
+        trackHistoryService.rollup();
+
+        Document match = pipeline[0].get(0).get("$match", Document.class).get("timestamp", Document.class);
+        assertEquals(Date.from(watermark.minusMillis(120_000)), match.get("$gte"));
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(TrackHistoryService.STATE_COLLECTION));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLateBatchIsRolledUpAgain() {
+        ReflectionTestUtils.setField(trackHistoryService, "rollupDelayMs", 0L);
+        Instant now = Instant.now();
+        ReflectionTestUtils.setField(trackHistoryService, "rolledUpTo",
+                TrackHistoryService.truncate(now, TrackHistoryService.Resolution.ONE_MINUTE));
+        List<List<Document>> pipelines = new ArrayList<>();
+        when(mongoTemplate.execute(eq("ambulance_locations"), any(CollectionCallback.class))).thenAnswer(invocation -> {
+            pipelines.add(capturePipeline(invocation.getArgument(1)));
+            return null;
+        });
+
+        // A batch buffered for three hours, uploaded in two parts
+        Instant late = Instant.parse("2024-01-15T06:00:30Z");
+        trackHistoryService.markDirty(late.toEpochMilli(), late.plusSeconds(3600).toEpochMilli());
+        trackHistoryService.markDirty(late.plusSeconds(3000).toEpochMilli(), late.plusSeconds(10_800).toEpochMilli());
+        // Live pings are covered by the regular run's overlap
+        trackHistoryService.markDirty(now.toEpochMilli(), now.toEpochMilli());
+        trackHistoryService.rollup();
+
+        // The regular run, then both parts of the upload as one window
+        assertEquals(2, pipelines.size());
+        Document match = pipelines.get(1).get(0).get("$match", Document.class).get("timestamp", Document.class);
+        assertEquals(Date.from(Instant.parse("2024-01-15T06:00:00Z")), match.get("$gte"));
+        assertEquals(Date.from(Instant.parse("2024-01-15T09:01:00Z")), match.get("$lt"));
+
+        pipelines.clear();
+        trackHistoryService.rollup();
+        assertEquals(1, pipelines.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDirtyWindowsAreCappedByMergingNeighbours() {
+        ReflectionTestUtils.setField(trackHistoryService, "rollupDelayMs", 0L);
+        ReflectionTestUtils.setField(trackHistoryService, "maxDirtyWindows", 3);
+        Instant now = Instant.now();
+        ReflectionTestUtils.setField(trackHistoryService, "rolledUpTo",
+                TrackHistoryService.truncate(now, TrackHistoryService.Resolution.ONE_MINUTE));
+        List<List<Document>> pipelines = new ArrayList<>();
+        when(mongoTemplate.execute(eq("ambulance_locations"), any(CollectionCallback.class))).thenAnswer(invocation -> {
+            pipelines.add(capturePipeline(invocation.getArgument(1)));
+            return null;
+        });
+
+        // One late batch an hour for a day, each a single minute
+        Instant late = Instant.parse("2024-01-15T00:00:30Z");
+        for (int hour = 0; hour < 24; hour++) {
+            long at = late.plus(Duration.ofHours(hour)).toEpochMilli();
+            trackHistoryService.markDirty(at, at);
+        }
+        assertEquals(3, trackHistoryService.dirtyWindowCount());
+
+        trackHistoryService.rollup();
+
+        // The regular run, then three windows that between them cover every marked minute
+        assertEquals(4, pipelines.size());
+        Document first = pipelines.get(1).get(0).get("$match", Document.class).get("timestamp", Document.class);
+        Document last = pipelines.get(3).get(0).get("$match", Document.class).get("timestamp", Document.class);
+        assertEquals(Date.from(Instant.parse("2024-01-15T00:00:00Z")), first.get("$gte"));
+        assertEquals(Date.from(Instant.parse("2024-01-15T23:01:00Z")), last.get("$lt"));
+        assertEquals(0, trackHistoryService.dirtyWindowCount());
+    }
+
+    @Test
+    public void testWindowsMarkedBeforeTheWatermarkIsKnownAreLeftToTheRegularRun() {
+        ReflectionTestUtils.setField(trackHistoryService, "rollupDelayMs", 0L);
+        Instant watermark = TrackHistoryService.truncate(Instant.now().minus(Duration.ofMinutes(30)),
+                TrackHistoryService.Resolution.ONE_MINUTE);
+        when(mongoTemplate.findById("watermark", Document.class, "track_rollup_state"))
+                .thenReturn(new Document("_id", "watermark").append("rolledUpTo", Date.from(watermark)));
+
+        // Every batch is marked while nothing is known, live ones included
+        for (int i = 0; i < 100; i++) {
+            long at = Instant.now().minusSeconds(i).toEpochMilli();
+            trackHistoryService.markDirty(at, at);
+        }
+        long stale = watermark.minus(Duration.ofHours(2)).toEpochMilli();
+        trackHistoryService.markDirty(stale, stale);
+        assertEquals(2, trackHistoryService.dirtyWindowCount());
+
+        trackHistoryService.rollup();
+
+        assertEquals(0, trackHistoryService.dirtyWindowCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> capturePipeline(CollectionCallback<?> callback) throws Exception {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        AggregateIterable<Document> aggregate = mock(AggregateIterable.class, RETURNS_SELF);
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+        when(collection.aggregate(pipeline.capture())).thenReturn(aggregate);
+        callback.doInCollection(collection);
+        return pipeline.getValue();
+    }
+}
@@ -0,0 +1,153 @@
+package com.carefleet.service;
+
+import com.carefleet.model.User;
+import com.carefleet.model.UserRole;
+import com.carefleet.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UserDetailsServiceImplTest {
+
+    private UserRepository userRepository;
+    private ValueOperations<String, String> redisValues;
+    private StringRedisTemplate redisTemplate;
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private UserDetailsServiceImpl userDetailsService;
+    private User user;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        redisValues = mock(ValueOperations.class);
+        redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(redisValues);
+        meterRegistry = new SimpleMeterRegistry();
+        mongoTemplate = mock(MongoTemplate.class);
+
+        userDetailsService = new UserDetailsServiceImpl();
+        ReflectionTestUtils.setField(userDetailsService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userDetailsService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(userDetailsService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(userDetailsService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(userDetailsService, "localMaxSize", 100L);
+        ReflectionTestUtils.setField(userDetailsService, "localTtlMs", 60_000L);
+        ReflectionTestUtils.setField(userDetailsService, "redisTtlMs", 60_000L);
+        userDetailsService.init();
+
+        user = new User("nurse@carefleet.com", "hash", "Nia", "Nurse", UserRole.NURSE);
+        user.setId("user-1");
+        user.setEmailVerified(true);
+        user.setEmailOtp("482913");
+        user.setEmailVerificationToken("verify-token");
+    }
+
+    @Test
+    public void testMissLoadsFromDatabaseOnceAndFillsRedis() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserById("user-1");
+        userDetailsService.loadUserById("user-1");
+
+        verify(userRepository, times(1)).findById("user-1");
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(redisValues).set(eq(UserDetailsServiceImpl.ID_KEY_PREFIX + "user-1"), json.capture(), any(Duration.class));
+        verify(redisValues).set(eq(UserDetailsServiceImpl.EMAIL_KEY_PREFIX + "nurse@carefleet.com"), eq("user-1"),
+                any(Duration.class));
+        assertTrue(json.getValue().contains("\"password\":\"hash\""));
+        assertFalse(json.getValue().contains("482913"));
+        assertFalse(json.getValue().contains("verify-token"));
+        assertFalse(json.getValue().contains("Nia"));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users.byId").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void testRedisHitSkipsDatabase() throws Exception {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserById("user-1");
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(redisValues).set(eq(UserDetailsServiceImpl.ID_KEY_PREFIX + "user-1"), json.capture(), any(Duration.class));
+        reset(userRepository);
+
+        // A fresh replica with an empty local tier
+        userDetailsService.init();
+        when(redisValues.get(UserDetailsServiceImpl.EMAIL_KEY_PREFIX + "nurse@carefleet.com")).thenReturn("user-1");
+        when(redisValues.get(UserDetailsServiceImpl.ID_KEY_PREFIX + "user-1")).thenReturn(json.getValue());
+
+        User cached = (User) userDetailsService.loadUserByUsername("nurse@carefleet.com");
+
+        verifyNoInteractions(userRepository);
+        assertEquals("user-1", cached.getId());
+        assertEquals("hash", cached.getPassword());
+        assertEquals(UserRole.NURSE, cached.getRole());
+        assertTrue(cached.isEnabled());
+        assertNull(cached.getEmailOtp());
+    }
+
+    @Test
+    public void testEvictForcesReload() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserById("user-1");
+
+        userDetailsService.evict(user);
+        userDetailsService.loadUserById("user-1");
+
+        verify(userRepository, times(2)).findById("user-1");
+        verify(redisTemplate).delete(anyCollection());
+    }
+
+    @Test
+    public void testUnknownUserIsRejected() {
+        when(userRepository.findByEmail("ghost@carefleet.com")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> userDetailsService.loadUserByUsername("ghost@carefleet.com"));
+    }
+
+    @Test
+    public void testUpdatePasswordWritesOnlyThePassword() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        userDetailsService.updatePassword(user, "$2a$12$rehashed");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(User.class));
+        assertEquals("hash", query.getValue().getQueryObject().get("password"));
+        assertEquals(new Document("password", "$2a$12$rehashed"), update.getValue().getUpdateObject().get("$set"));
+        assertEquals("$2a$12$rehashed", user.getPassword());
+        verify(redisTemplate).delete(anyCollection());
+    }
+
+    @Test
+    public void testUpdatePasswordLeavesAChangedPasswordAlone() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        userDetailsService.updatePassword(user, "$2a$12$rehashed");
+
+        assertEquals("hash", user.getPassword());
+        verify(redisTemplate, never()).delete(anyCollection());
+    }
+}
@@ -37,6 +37,7 @@ export function BedManagement() {
   const getStatusBadge = (status: string) => {
     const styles = {
       AVAILABLE: 'bg-green-100 text-green-800',
+      RESERVED: 'bg-blue-100 text-blue-800',
       OCCUPIED: 'bg-red-100 text-red-800',
       MAINTENANCE: 'bg-yellow-100 text-yellow-800',
     };
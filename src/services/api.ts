@@ -20,6 +20,10 @@ apiClient.interceptors.request.use((config) => {
   return config;
 });
 
+// Refresh tokens are single use, so requests failing together must share one refresh;
+// a second refresh with the same token would sign the user out
+let pendingRefresh: Promise<AuthResponse> | null = null;
+
 // Response interceptor to handle token refresh
 apiClient.interceptors.response.use(
   (response) => response,
@@ -28,17 +32,25 @@ apiClient.interceptors.response.use(
       const refreshToken = localStorage.getItem('refreshToken');
       if (refreshToken) {
         try {
-          const response = await authApi.refreshToken(refreshToken);
+          if (!pendingRefresh) {
+            pendingRefresh = authApi.refreshToken(refreshToken).finally(() => {
+              pendingRefresh = null;
+            });
+          }
+          const response = await pendingRefresh;
           localStorage.setItem('accessToken', response.accessToken);
           localStorage.setItem('refreshToken', response.refreshToken);
           
           // Retry original request
           error.config.headers.Authorization = `Bearer ${response.accessToken}`;
           return apiClient.request(error.config);
-        } catch (refreshError) {
-          localStorage.removeItem('accessToken');
-          localStorage.removeItem('refreshToken');
-          window.location.href = '/login';
+        } catch (refreshError: any) {
+          // 503 means the session could not be checked, not that it ended
+          if (refreshError?.response?.status !== 503) {
+            localStorage.removeItem('accessToken');
+            localStorage.removeItem('refreshToken');
+            window.location.href = '/login';
+          }
         }
       }
     }
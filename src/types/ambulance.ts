@@ -6,6 +6,8 @@ export interface Ambulance {
   currentLocation?: {
     latitude: number;
     longitude: number;
+    speed?: number;
+    heading?: number;
     timestamp: string;
   };
   destinationHospitalId?: string;
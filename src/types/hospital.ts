@@ -18,9 +18,11 @@ export interface Bed {
   hospitalId: string;
   bedNumber: string;
   type: 'ICU' | 'GENERAL' | 'EMERGENCY' | 'MATERNITY' | 'PEDIATRIC';
-  status: 'AVAILABLE' | 'OCCUPIED' | 'MAINTENANCE';
+  status: 'AVAILABLE' | 'RESERVED' | 'OCCUPIED' | 'MAINTENANCE';
   patientId?: string;
   assignedStaffId?: string;
+  reservedBy?: string;
+  reservedUntil?: string;
   createdAt: string;
   updatedAt: string;
 }